@@ -0,0 +1,7 @@
+package LibraryManagement;
+
+// Callback used by Library to keep its availability tracking in sync with Book
+// Called while the book's lock is held, so callbacks for one book arrive in order
+interface AvailabilityListener {
+    void copiesChanged(Book book, int availableDelta, int totalDelta);
+}
@@ -1,21 +1,37 @@
 package LibraryManagement;
 
-// Book class - Represents a book in the library
+// Book class - Represents a title in the library and all of its physical copies
 public class Book {
     // Encapsulated fields
-    private String isbn;
+    private String isbn;        // As entered - "0-13-235088-2" stays "0-13-235088-2"
+    private long isbnKey;       // ISBN-13 as a number, Isbn.NONE for identifiers that are not ISBNs, see Isbn
     private String title;
     private String author;
     private int yearPublished;
-    private boolean isAvailable;
+    // Copy counters packed into one volatile long (total << 32 | available),
+    // so readers always see a matching pair without taking the lock
+    private volatile long copies;
+    private volatile AvailabilityListener availabilityListener;  // Set by the owning Library
+    private volatile VersionClock.Version versions;  // Recent numbered states for LibraryView, newest first
+    private VersionClock versionClock;               // Clock of the Library that holds or last held the book
+    private boolean versioned;                       // Whether changes are numbered - guarded by this
+    private int catalogRow;                          // Row in the owning Library's ColumnarCatalog - guarded by this
     
-    // Constructor
+    // Constructors
     public Book(String isbn, String title, String author, int yearPublished) {
+        this(isbn, title, author, yearPublished, 1);
+    }
+    
+    public Book(String isbn, String title, String author, int yearPublished, int totalCopies) {
+        if (totalCopies < 1) {
+            throw new IllegalArgumentException("A book needs at least one copy");
+        }
         this.isbn = isbn;
+        this.isbnKey = Isbn.keyOf(isbn);  // Anything that is not a valid ISBN, e.g. "123", is matched as typed
         this.title = title;
         this.author = author;
         this.yearPublished = yearPublished;
-        this.isAvailable = true;  // New books are available by default
+        this.copies = pack(totalCopies, totalCopies);  // New copies are available by default
     }
     
     // Getters
@@ -23,6 +39,15 @@ public class Book {
         return isbn;
     }
     
+    long getIsbnKey() {
+        return isbnKey;
+    }
+    
+    // The spelling every form of the ISBN maps to (see Isbn.normalize), for indexes keyed by string
+    String getCanonicalIsbn() {
+        return isbnKey != Isbn.NONE ? Isbn.toString(isbnKey) : isbn;
+    }
+    
     public String getTitle() {
         return title;
     }
@@ -35,34 +60,140 @@ public class Book {
         return yearPublished;
     }
     
+    // Available when at least one copy is on the shelf
     public boolean isAvailable() {
-        return isAvailable;
+        return availableOf(copies) > 0;
+    }
+    
+    public int getTotalCopies() {
+        return totalOf(copies);
+    }
+    
+    public int getAvailableCopies() {
+        return availableOf(copies);
     }
     
     // Setters with validation
-    public void setAvailable(boolean available) {
-        this.isAvailable = available;
+    // State changes synchronize on this book only, so different books never contend
+    // true puts every copy back on the shelf, false marks every copy as lent out
+    public synchronized void setAvailable(boolean available) {
+        int total = totalOf(copies);
+        updateCopies(total, available ? total : 0);
     }
     
-    // Business logic methods
-    public void checkout() {
-        if (!isAvailable) {
+    // Business logic methods - each checkout or return moves exactly one copy
+    public synchronized void checkout() {
+        long current = copies;
+        if (availableOf(current) == 0) {
             throw new IllegalStateException("Book is already checked out");
         }
-        this.isAvailable = false;
+        updateCopies(totalOf(current), availableOf(current) - 1);
     }
     
-    public void returnBook() {
-        if (isAvailable) {
+    public synchronized void returnBook() {
+        long current = copies;
+        if (availableOf(current) == totalOf(current)) {
             throw new IllegalStateException("Book is already available");
         }
-        this.isAvailable = true;
+        updateCopies(totalOf(current), availableOf(current) + 1);
+    }
+    
+    // Holdings changes - new copies arrive on the shelf, only shelved copies can be withdrawn
+    synchronized void addCopies(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Copy count must be at least 1");
+        }
+        long current = copies;
+        updateCopies(totalOf(current) + count, availableOf(current) + count);
+    }
+    
+    synchronized void removeCopies(int count) {
+        long current = copies;
+        if (count < 1 || count >= totalOf(current)) {
+            throw new IllegalArgumentException("Must keep at least one copy - use removeBook instead");
+        }
+        if (count > availableOf(current)) {
+            throw new IllegalStateException("Cannot remove copies that are checked out");
+        }
+        updateCopies(totalOf(current) - count, availableOf(current) - count);
+    }
+    
+    // Library hooks - package-private so only the owning Library can attach itself
+    void setAvailabilityListener(AvailabilityListener listener) {
+        this.availabilityListener = listener;
+    }
+    
+    int getCatalogRow() {
+        return catalogRow;
+    }
+    
+    void setCatalogRow(int row) {
+        this.catalogRow = row;
+    }
+    
+    // Versioning hooks - the owning Library numbers every state of the copies, see VersionClock
+    // A book that comes back to the same Library keeps its older states for views opened before it left
+    synchronized void attachVersions(VersionClock clock) {
+        if (clock != versionClock) {
+            versions = null;
+            versionClock = clock;
+        }
+        versioned = true;
+        recordVersion(copies);
+    }
+    
+    // Returns the version at which the book left the catalog
+    synchronized long detachVersions() {
+        long removedAt = recordVersion(VersionClock.ABSENT);
+        versioned = false;
+        return removedAt;
+    }
+    
+    // Packed copies as of the given version, or VersionClock.ABSENT if the book was not in the catalog
+    long copiesAt(long version) {
+        return VersionClock.copiesAt(versions, version);
+    }
+    
+    private long recordVersion(long state) {
+        if (!versioned) {
+            return 0;
+        }
+        VersionClock.Version head = new VersionClock.Version(state, versions);
+        versions = head;  // Linked in before it is numbered, so no reader with a later version can miss it
+        return versionClock.commit(head);
+    }
+    
+    private void updateCopies(int total, int available) {
+        long previous = copies;
+        if (previous == pack(total, available)) {
+            return;
+        }
+        copies = pack(total, available);
+        recordVersion(copies);
+        AvailabilityListener listener = availabilityListener;
+        if (listener != null) {
+            listener.copiesChanged(this, available - availableOf(previous), total - totalOf(previous));
+        }
+    }
+    
+    private static long pack(int total, int available) {
+        return ((long) total << 32) | (available & 0xFFFFFFFFL);
+    }
+    
+    static int totalOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+    
+    static int availableOf(long packed) {
+        return (int) packed;
     }
     
     @Override
     public String toString() {
-        return String.format("Book{isbn='%s', title='%s', author='%s', year=%d, available=%s}",
-                isbn, title, author, yearPublished, isAvailable);
+        long current = copies;
+        return String.format("Book{isbn='%s', title='%s', author='%s', year=%d, available=%s, copies=%d/%d}",
+                isbn, title, author, yearPublished, availableOf(current) > 0,
+                availableOf(current), totalOf(current));
     }
     
     @Override
@@ -70,12 +201,15 @@ public class Book {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Book book = (Book) obj;
+        if (isbnKey != Isbn.NONE || book.isbnKey != Isbn.NONE) {
+            return isbnKey == book.isbnKey;
+        }
         return isbn != null ? isbn.equals(book.isbn) : book.isbn == null;
     }
     
     @Override
     public int hashCode() {
-        return isbn != null ? isbn.hashCode() : 0;
+        return Isbn.hash(isbnKey, isbn);
     }
 }
 
@@ -0,0 +1,11 @@
+package LibraryManagement;
+
+// Books (distinct ISBNs), physical copies and copies on the shelf for one slice of the catalog
+public record CatalogCounts(long books, long copies, long availableCopies) {
+    
+    public static final CatalogCounts EMPTY = new CatalogCounts(0, 0, 0);
+    
+    public long loanedCopies() {
+        return copies - availableCopies;
+    }
+}
@@ -0,0 +1,64 @@
+package LibraryManagement;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Demo for CatalogImporter - imports the CSV/NDJSON file given as argument, or a generated sample
+public class CatalogImportDemo {
+    public static void main(String[] args) throws Exception {
+        Library library = new Library("City Central Library");
+        library.addBook(new Book("978-0132350884", "Clean Code", "Robert Martin", 2008));
+        CatalogImporter importer = new CatalogImporter(library);
+        CatalogImporter.ProgressListener progress = (phase, done, total) ->
+                System.out.printf("  %s %d%%%n", phase, total == 0 ? 100 : done * 100 / total);
+        
+        if (args.length > 0) {
+            Path file = Path.of(args[0]);
+            System.out.println(importer.importFile(file, CatalogImporter.Format.of(file), progress));
+            System.out.println(library);
+            return;
+        }
+        
+        Path directory = Files.createTempDirectory("catalog-import");
+        Path csv = directory.resolve("catalog.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            out.write("isbn,title,author,year,copies\n");
+            for (int i = 0; i < 200_000; i++) {
+                out.write(String.format("%s,\"Volume %d, revised\",Author %d,%d,%d%n",
+                        isbn(i), i, i % 5_000, 1950 + i % 75, 1 + i % 3));
+            }
+            out.write("0-13-235088-2,Clean Code,Robert Martin,2008,1\n");    // Already in the catalog, as ISBN-10
+            out.write(isbn(7) + ",Volume 7 again,Author 7,1957,1\n");         // Repeated ISBN
+            out.write("978-0132350885,Misprint,Someone,2001,1\n");           // Wrong check digit
+            out.write(isbn(999_999) + ",Undated,Someone,soon,1\n");           // Bad year
+            out.write(isbn(999_998) + ",\"Unterminated,Someone,2001,1\n");    // Broken quoting
+        }
+        Path ndjson = directory.resolve("catalog.ndjson");
+        Files.writeString(ndjson, """
+                {"isbn": "978-0134685991", "title": "Effective Java", "author": "Joshua Bloch", "year": 2018, "copies": 3}
+                {"isbn": "978-0596009205", "title": "Head First Java", "author": "Kathy Sierra", "year": 2005}
+                {"isbn": "978-1617294945", "title": "\\"Quoted\\" title", "author": "Nobody"}
+                """);
+        
+        System.out.println("=== Importing " + csv + " ===");
+        ImportReport report = importer.importFile(csv, CatalogImporter.Format.CSV, progress);
+        System.out.println(report);
+        report.sampleRejects().forEach(reject -> System.out.println("  rejected " + reject));
+        
+        System.out.println("\n=== Importing " + ndjson + " ===");
+        report = importer.importFile(ndjson);
+        System.out.println(report);
+        report.sampleRejects().forEach(reject -> System.out.println("  rejected " + reject));
+        
+        System.out.println("\n" + library);
+        System.out.println("Copies: " + library.getTotalCopiesCount());
+        Files.delete(csv);
+        Files.delete(ndjson);
+        Files.delete(directory);
+    }
+    
+    private static String isbn(int number) {
+        return Isbn.toString(Isbn.withCheckDigit(979_000_000_000L + number));
+    }
+}
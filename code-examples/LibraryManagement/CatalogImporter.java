@@ -0,0 +1,662 @@
+package LibraryManagement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bulk catalog load from CSV or NDJSON files, one record per line
+//
+//   CSV:    isbn,title,author,year[,copies] - with a header row the columns may come in any order
+//   NDJSON: {"isbn": "978-0132350884", "title": "Clean Code", "author": "Robert Martin", "year": 2008}
+//
+// The file is memory-mapped and cut at line boundaries into chunks that worker threads parse in
+// parallel. A single pass over the parsed chunks, in file order, drops repeated ISBNs (the first one
+// wins) and ISBNs already in the catalog; the rest go in through Library.addBooks, again split across
+// the workers. A bad line is rejected with its line number and reason instead of failing the load.
+public class CatalogImporter {
+    private static final int MAX_SAMPLE_REJECTS = 1_000;
+    private static final long MAX_CHUNK_BYTES = 1L << 30;   // One mapping may not exceed 2 GB
+    private static final long MIN_CHUNK_BYTES = 1L << 20;   // Smaller files are not worth splitting further
+    private static final int PROGRESS_EVERY = 1 << 16;      // Records between progress callbacks
+    private static final String[] CSV_COLUMNS = {"isbn", "title", "author", "year", "copies"};
+    
+    public enum Format {
+        CSV,
+        NDJSON;
+        
+        // By file extension: .csv, otherwise .ndjson / .jsonl / .json
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Cannot tell the format of " + file.getFileName());
+        }
+    }
+    
+    // Called from the worker threads - "parse" counts bytes of the file, "install" counts books
+    public interface ProgressListener {
+        void onProgress(String phase, long done, long total);
+    }
+    
+    private final Library library;
+    private final int threads;
+    
+    // Constructors
+    public CatalogImporter(Library library) {
+        this(library, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public CatalogImporter(Library library, int threads) {
+        if (library == null) {
+            throw new IllegalArgumentException("Library cannot be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one import thread is required");
+        }
+        this.library = library;
+        this.threads = threads;
+    }
+    
+    public ImportReport importFile(Path file) throws IOException {
+        return importFile(file, Format.of(file), null);
+    }
+    
+    public ImportReport importFile(Path file, Format format, ProgressListener progress) throws IOException {
+        ProgressListener listener = progress != null ? progress : (phase, done, total) -> { };
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "catalog-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long parseStart = System.nanoTime();
+            long size = channel.size();
+            byte[] firstLine = readLine(channel, 0, size);
+            int bodyStart = startsWithBom(firstLine) ? 3 : 0;
+            int headerLines = 0;
+            int[] columns = {0, 1, 2, 3, 4};
+            if (format == Format.CSV && firstLine.length > bodyStart) {
+                int[] headerColumns = csvHeaderColumns(firstLine, bodyStart);
+                if (headerColumns != null) {
+                    columns = headerColumns;
+                    bodyStart = firstLine.length;
+                    headerLines = 1;
+                }
+            }
+            
+            // Parse - one task per chunk, more chunks than threads so a slow chunk does not hold up the rest
+            long[] bounds = splitAtLines(channel, bodyStart, size);
+            AtomicLong parsedBytes = new AtomicLong(bodyStart);
+            int[] csvColumns = columns;
+            List<Future<Chunk>> parsing = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                parsing.add(workers.submit(() -> {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                    LineParser parser = format == Format.CSV ? new CsvParser(mapped, csvColumns) : new JsonParser(mapped);
+                    return parseChunk(mapped, parser, parsedBytes, size, listener);
+                }));
+            }
+            List<Chunk> chunks = new ArrayList<>();
+            for (Future<Chunk> chunk : parsing) {
+                chunks.add(await(chunk));
+            }
+            
+            // Deduplicate in file order; line numbers become global here
+            long records = 0;
+            long rejected = 0;
+            List<ImportReport.Reject> rejects = new ArrayList<>();
+            List<Book> accepted = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            long lineOffset = headerLines;
+            for (Chunk chunk : chunks) {
+                records += chunk.records;
+                rejected += chunk.rejected;
+                for (ImportReport.Reject reject : chunk.rejects) {
+                    addSample(rejects, new ImportReport.Reject(lineOffset + reject.line(), reject.reason()));
+                }
+                for (int i = 0; i < chunk.books.size(); i++) {
+                    Book book = chunk.books.get(i);
+                    String reason = null;
+                    if (!seen.add(book.getCanonicalIsbn())) {  // Two spellings of one ISBN are duplicates
+                        reason = "Duplicate ISBN " + book.getIsbn() + " in file";
+                    } else if (library.findBookByIsbn(book.getIsbn()) != null) {
+                        reason = "ISBN " + book.getIsbn() + " is already in the catalog";
+                    }
+                    if (reason == null) {
+                        accepted.add(book);
+                    } else {
+                        rejected++;
+                        addSample(rejects, new ImportReport.Reject(lineOffset + chunk.lines[i], reason));
+                    }
+                }
+                lineOffset += chunk.lineCount;
+            }
+            Duration parseTime = Duration.ofNanos(System.nanoTime() - parseStart);
+            
+            // Install - disjoint slices in parallel; ISBNs are unique now, so the slices never collide
+            long installStart = System.nanoTime();
+            AtomicLong installed = new AtomicLong();
+            List<Future<Integer>> installing = new ArrayList<>();
+            int sliceSize = Math.max(PROGRESS_EVERY / 4, (accepted.size() + threads - 1) / Math.max(1, threads));
+            for (int from = 0; from < accepted.size(); from += sliceSize) {
+                List<Book> slice = accepted.subList(from, Math.min(accepted.size(), from + sliceSize));
+                installing.add(workers.submit(() -> install(slice, installed, accepted.size(), listener)));
+            }
+            long lateDuplicates = 0;
+            for (Future<Integer> slice : installing) {
+                lateDuplicates += await(slice);  // Added by someone else since the dedup pass
+            }
+            Duration installTime = Duration.ofNanos(System.nanoTime() - installStart);
+            
+            rejects.sort(Comparator.comparingLong(ImportReport.Reject::line));
+            return new ImportReport(file, format, records, accepted.size() - lateDuplicates,
+                    rejected + lateDuplicates, List.copyOf(rejects), parseTime, installTime);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+    
+    // Parsed books of one chunk with their chunk-local line numbers (1-based)
+    private static final class Chunk {
+        final List<Book> books = new ArrayList<>();
+        int[] lines = new int[64];
+        final List<ImportReport.Reject> rejects = new ArrayList<>();
+        long records;
+        long rejected;
+        int lineCount;
+        
+        void accept(Book book, int line) {
+            if (books.size() == lines.length) {
+                lines = Arrays.copyOf(lines, lines.length * 2);
+            }
+            lines[books.size()] = line;
+            books.add(book);
+        }
+    }
+    
+    private static Chunk parseChunk(ByteBuffer buffer, LineParser parser, AtomicLong parsedBytes,
+                                    long totalBytes, ProgressListener listener) {
+        Chunk chunk = new Chunk();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        int reported = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            chunk.lineCount++;
+            if (!isBlank(buffer, lineStart, contentEnd)) {
+                chunk.records++;
+                try {
+                    chunk.accept(parser.parse(lineStart, contentEnd), chunk.lineCount);
+                } catch (BadRecord | IllegalArgumentException e) {  // Book rejects bad copies, for example
+                    chunk.rejected++;
+                    addSample(chunk.rejects, new ImportReport.Reject(chunk.lineCount, e.getMessage()));
+                }
+                if (chunk.records % PROGRESS_EVERY == 0) {
+                    listener.onProgress("parse", parsedBytes.addAndGet(lineEnd - reported), totalBytes);
+                    reported = lineEnd;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        listener.onProgress("parse", parsedBytes.addAndGet(limit - reported), totalBytes);
+        return chunk;
+    }
+    
+    private int install(List<Book> books, AtomicLong installed, long total, ProgressListener listener) {
+        int duplicates = 0;
+        for (int from = 0; from < books.size(); from += PROGRESS_EVERY) {
+            List<Book> batch = books.subList(from, Math.min(books.size(), from + PROGRESS_EVERY));
+            duplicates += library.addBooks(batch).size();
+            listener.onProgress("install", installed.addAndGet(batch.size()), total);
+        }
+        return duplicates;
+    }
+    
+    // Chunk boundaries - each one just after a newline, so no line is split between two workers
+    private long[] splitAtLines(FileChannel channel, long start, long size) throws IOException {
+        long body = size - start;
+        long chunkCount = Math.max(1, Math.min((long) threads * 4, body / MIN_CHUNK_BYTES));
+        chunkCount = Math.max(chunkCount, (body + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        for (long i = 1; i < chunkCount; i++) {
+            long nominal = start + body * i / chunkCount;
+            long previous = bounds.get(bounds.size() - 1);
+            if (nominal <= previous) {
+                continue;
+            }
+            long boundary = nominal + readLine(channel, nominal, size).length;  // End of the line we landed in
+            if (boundary > previous && boundary < size) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+    
+    // Bytes from position up to and including the next newline (or end of file)
+    private static byte[] readLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        byte[] line = new byte[0];
+        long offset = position;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    int previous = line.length;
+                    line = Arrays.copyOf(line, previous + i + 1);
+                    buffer.get(0, line, previous, i + 1);
+                    return line;
+                }
+            }
+            int previous = line.length;
+            line = Arrays.copyOf(line, previous + read);
+            buffer.get(0, line, previous, read);
+            offset += read;
+        }
+        return line;
+    }
+    
+    private static boolean startsWithBom(byte[] line) {
+        return line.length >= 3 && (line[0] & 0xFF) == 0xEF && (line[1] & 0xFF) == 0xBB && (line[2] & 0xFF) == 0xBF;
+    }
+    
+    // Column positions of isbn/title/author/year/copies, or null when the first line is data
+    private static int[] csvHeaderColumns(byte[] firstLine, int from) {
+        String[] names = new String(firstLine, from, firstLine.length - from, StandardCharsets.UTF_8)
+                .strip().toLowerCase(Locale.ROOT).split(",");
+        int[] columns = new int[CSV_COLUMNS.length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].strip().replace("\"", "");
+            if (name.equals("yearpublished") || name.equals("year_published")) {
+                name = "year";
+            }
+            for (int c = 0; c < CSV_COLUMNS.length; c++) {
+                if (CSV_COLUMNS[c].equals(name)) {
+                    columns[c] = i;
+                }
+            }
+        }
+        if (columns[0] < 0) {
+            return null;  // No isbn column - not a header
+        }
+        for (int c = 0; c < 4; c++) {
+            if (columns[c] < 0) {
+                throw new IllegalArgumentException("CSV header is missing the " + CSV_COLUMNS[c] + " column");
+            }
+        }
+        return columns;
+    }
+    
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static <T> void addSample(List<T> samples, T reject) {
+        if (samples.size() < MAX_SAMPLE_REJECTS) {
+            samples.add(reject);
+        }
+    }
+    
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Import failed", cause);
+        }
+    }
+    
+    // A line that cannot become a Book - no stack trace, rejects can be frequent in a dirty file
+    private static final class BadRecord extends Exception {
+        private static final long serialVersionUID = 1L;
+        
+        BadRecord(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+    
+    // Parses one line of the mapped chunk - positions are absolute within the chunk's buffer
+    private abstract static class LineParser {
+        final ByteBuffer buffer;
+        byte[] scratch = new byte[256];
+        
+        LineParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        abstract Book parse(int from, int to) throws BadRecord;
+        
+        String decode(int from, int to) {
+            int length = to - from;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(from, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        
+        static Book toBook(String isbn, String title, String author, String year, String copies) throws BadRecord {
+            if (isbn == null || isbn.isBlank()) {
+                throw new BadRecord("Missing ISBN");
+            }
+            try {
+                Isbn.parse(isbn);
+            } catch (IllegalArgumentException e) {
+                throw new BadRecord(e.getMessage());
+            }
+            if (year == null || year.isBlank()) {
+                throw new BadRecord("Missing year");
+            }
+            return new Book(isbn.strip(), title, author, parseInt(year, "year"),
+                    copies == null || copies.isBlank() ? 1 : parseInt(copies, "copies"));
+        }
+        
+        static int parseInt(String text, String field) throws BadRecord {
+            try {
+                return Integer.parseInt(text.strip());
+            } catch (NumberFormatException e) {
+                throw new BadRecord("Invalid " + field + " '" + text + "'");
+            }
+        }
+    }
+    
+    // RFC 4180 style fields: quoted fields may hold commas and doubled quotes, but not line breaks
+    private static final class CsvParser extends LineParser {
+        private final int[] columns;
+        private final String[] cells;
+        
+        CsvParser(ByteBuffer buffer, int[] columns) {
+            super(buffer);
+            this.columns = columns;
+            int width = 0;
+            for (int column : columns) {
+                width = Math.max(width, column + 1);
+            }
+            this.cells = new String[width];
+        }
+        
+        @Override
+        Book parse(int from, int to) throws BadRecord {
+            Arrays.fill(cells, null);
+            int position = from;
+            int column = 0;
+            while (true) {
+                String value;
+                if (position < to && buffer.get(position) == '"') {
+                    int length = 0;
+                    position++;
+                    while (true) {
+                        if (position >= to) {
+                            throw new BadRecord("Unterminated quoted field");
+                        }
+                        byte b = buffer.get(position++);
+                        if (b == '"') {
+                            if (position < to && buffer.get(position) == '"') {
+                                position++;
+                            } else {
+                                break;
+                            }
+                        }
+                        if (length == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, length * 2);
+                        }
+                        scratch[length++] = b;
+                    }
+                    if (position < to && buffer.get(position) != ',') {
+                        throw new BadRecord("Unexpected text after a quoted field");
+                    }
+                    value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                } else {
+                    int end = position;
+                    while (end < to && buffer.get(end) != ',') {
+                        end++;
+                    }
+                    value = decode(position, end).strip();
+                    position = end;
+                }
+                if (column < cells.length) {
+                    cells[column] = value;
+                }
+                column++;
+                if (position >= to) {
+                    break;
+                }
+                position++;  // Past the comma
+            }
+            for (int c = 0; c < 4; c++) {
+                if (columns[c] >= column) {
+                    throw new BadRecord("Expected at least " + (columns[c] + 1) + " columns, found " + column);
+                }
+            }
+            String copies = columns[4] >= 0 && columns[4] < column ? cells[columns[4]] : null;
+            return toBook(cells[columns[0]], cells[columns[1]], cells[columns[2]], cells[columns[3]], copies);
+        }
+    }
+    
+    // One flat JSON object per line - string, number, boolean and null values; unknown keys are ignored
+    private static final class JsonParser extends LineParser {
+        private int position;
+        private int end;
+        
+        JsonParser(ByteBuffer buffer) {
+            super(buffer);
+        }
+        
+        @Override
+        Book parse(int from, int to) throws BadRecord {
+            position = from;
+            end = to;
+            String isbn = null;
+            String title = null;
+            String author = null;
+            String year = null;
+            String copies = null;
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    expect('"');
+                    String key = readString();
+                    expect(':');
+                    String value = readValue();
+                    switch (key) {
+                        case "isbn" -> isbn = value;
+                        case "title" -> title = value;
+                        case "author" -> author = value;
+                        case "year", "yearPublished" -> year = value;
+                        case "copies", "totalCopies" -> copies = value;
+                        default -> {
+                            // Not part of a Book
+                        }
+                    }
+                    skipWhitespace();
+                    byte next = next();
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw new BadRecord("Expected ',' or '}' at column " + (position - from));
+                    }
+                }
+            }
+            skipWhitespace();
+            if (position != end) {
+                throw new BadRecord("Unexpected text after the JSON object");
+            }
+            return toBook(isbn, title, author, year, copies);
+        }
+        
+        private String readValue() throws BadRecord {
+            skipWhitespace();
+            byte first = peek();
+            if (first == '"') {
+                position++;
+                return readString();
+            }
+            if (first == '{' || first == '[') {
+                throw new BadRecord("Nested objects and arrays are not supported");
+            }
+            int start = position;
+            while (position < end) {
+                byte b = buffer.get(position);
+                if (b == ',' || b == '}' || b == ' ' || b == '\t') {
+                    break;
+                }
+                position++;
+            }
+            if (start == position) {
+                throw new BadRecord("Missing value");
+            }
+            String literal = decode(start, position);
+            return literal.equals("null") ? null : literal;
+        }
+        
+        // After the opening quote; fast path without escapes decodes the bytes in place
+        private String readString() throws BadRecord {
+            int start = position;
+            while (position < end) {
+                byte b = buffer.get(position);
+                if (b == '"') {
+                    position++;
+                    return decode(start, position - 1);
+                }
+                if (b == '\\') {
+                    return readEscapedString(start);
+                }
+                position++;
+            }
+            throw new BadRecord("Unterminated string");
+        }
+        
+        private String readEscapedString(int start) throws BadRecord {
+            StringBuilder text = new StringBuilder(decode(start, position));
+            while (position < end) {
+                int runStart = position;
+                while (position < end && buffer.get(position) != '"' && buffer.get(position) != '\\') {
+                    position++;
+                }
+                text.append(decode(runStart, position));
+                if (position >= end) {
+                    break;
+                }
+                byte b = buffer.get(position++);
+                if (b == '"') {
+                    return text.toString();
+                }
+                if (position >= end) {
+                    break;
+                }
+                byte escape = buffer.get(position++);
+                switch (escape) {
+                    case '"', '\\', '/' -> text.append((char) escape);
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'n' -> text.append('\n');
+                    case 'r' -> text.append('\r');
+                    case 't' -> text.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > end) {
+                            throw new BadRecord("Truncated \\u escape");
+                        }
+                        try {
+                            text.append((char) Integer.parseInt(decode(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new BadRecord("Invalid \\u escape");
+                        }
+                        position += 4;
+                    }
+                    default -> throw new BadRecord("Invalid escape \\" + (char) escape);
+                }
+            }
+            throw new BadRecord("Unterminated string");
+        }
+        
+        private void expect(char expected) throws BadRecord {
+            skipWhitespace();
+            if (position >= end || buffer.get(position) != expected) {
+                throw new BadRecord("Expected '" + expected + "'");
+            }
+            position++;
+        }
+        
+        private byte peek() throws BadRecord {
+            if (position >= end) {
+                throw new BadRecord("Unexpected end of line");
+            }
+            return buffer.get(position);
+        }
+        
+        private byte next() throws BadRecord {
+            byte b = peek();
+            position++;
+            return b;
+        }
+        
+        private void skipWhitespace() {
+            while (position < end && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package LibraryManagement;
+
+// How a Library stores the author, year and availability indexes behind its catalog queries
+// Chosen once, when the Library is built - see Library(String, Clock, CatalogStorage)
+public enum CatalogStorage {
+    INDEXED,   // Hash sets per author, per year and of available books - direct lookups, most heap per book
+    COLUMNAR   // Dense columns of author codes, years and availability bits - a few bytes per book, scanned
+}
@@ -0,0 +1,33 @@
+package LibraryManagement;
+
+import java.util.List;
+import java.util.SortedMap;
+
+// The indexes Library answers author, year and availability queries from - one per CatalogStorage
+// Library calls add, remove and availabilityChanged under the book's ISBN lock or its monitor, so calls
+// for one book arrive in order. The finders run without either lock and are weakly consistent: a book
+// added, removed or borrowed during the call may or may not be in the answer.
+interface CatalogStore {
+    void add(Book book);
+    
+    void remove(Book book);
+    
+    // Called under the book's monitor whenever its copy counts change
+    void availabilityChanged(Book book);
+    
+    // Takes the key from Library.authorKey, so lookups are case-insensitive
+    List<Book> findByAuthor(String authorKey);
+    
+    // Inclusive range; fromYear is not after toYear
+    List<Book> findPublishedBetween(int fromYear, int toYear);
+    
+    List<Book> findAvailable();
+    
+    int availableCount();
+    
+    SortedMap<Integer, Integer> countsByDecade();
+    
+    static CatalogStore create(CatalogStorage storage) {
+        return storage == CatalogStorage.COLUMNAR ? new ColumnarCatalog() : new IndexedCatalog();
+    }
+}
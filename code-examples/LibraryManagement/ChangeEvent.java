@@ -0,0 +1,69 @@
+package LibraryManagement;
+
+// One change published by a Library - read by ChangeEventHandlers on their subscription thread
+// The instance is reused for every event of a subscription, so copy what you need to keep.
+public final class ChangeEvent {
+    
+    public enum Type {
+        BOOK_ADDED,
+        BOOK_REMOVED,
+        COPIES_CHANGED,     // copies = new total
+        MEMBER_REGISTERED,
+        BOOK_CHECKED_OUT,
+        BOOK_RETURNED,
+        MEMBER_UPDATED      // Email or borrow limit changed
+    }
+    
+    private static final Type[] TYPES = Type.values();
+    
+    private long sequence;
+    private Type type;
+    private String memberId;   // Null for catalog events
+    private String isbn;       // Null for member events
+    private int copies;
+    private long timestampMillis;
+    
+    ChangeEvent() {
+    }
+    
+    // Getters
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public String getMemberId() {
+        return memberId;
+    }
+    
+    public String getIsbn() {
+        return isbn;
+    }
+    
+    public int getCopies() {
+        return copies;
+    }
+    
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+    
+    // Filled from a ring slot by ChangeEventRing.read
+    void set(long sequence, int typeOrdinal, String memberId, String isbn, int copies, long timestampMillis) {
+        this.sequence = sequence;
+        this.type = TYPES[typeOrdinal];
+        this.memberId = memberId;
+        this.isbn = isbn;
+        this.copies = copies;
+        this.timestampMillis = timestampMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ChangeEvent{seq=%d, type=%s, member='%s', isbn='%s', copies=%d}",
+                sequence, type, memberId, isbn, copies);
+    }
+}
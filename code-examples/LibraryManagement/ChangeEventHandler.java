@@ -0,0 +1,10 @@
+package LibraryManagement;
+
+// Consumer of a Library's change events - called on the subscription's own thread, never on a transaction
+public interface ChangeEventHandler {
+    void onEvent(ChangeEvent event);
+    
+    // After each batch of events that were ready together - the place to flush or commit
+    default void onBatchEnd() {
+    }
+}
@@ -0,0 +1,87 @@
+package LibraryManagement;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Preallocated ring of change events - many producers, any number of independent consumers
+//
+// Slots are parallel arrays, so publishing only stores into memory allocated up front. Producers claim
+// a sequence number with one atomic increment and never wait for consumers: a subscriber that falls a
+// full lap behind is overrun and skips ahead, counting what it missed, instead of stalling transactions.
+// Each slot carries the sequence it holds, seqlock style - the value is marked while a producer writes
+// the slot, and a consumer re-checks it after copying the fields, so it never reports a torn or
+// overwritten event.
+final class ChangeEventRing {
+    static final int READ = 0;          // Event copied into the target
+    static final int NOT_YET = 1;       // Claimed but not yet published
+    static final int OVERRUN = 2;       // Already overwritten by a later lap
+    private static final long WRITING = 1L << 62;  // Added to a slot's sequence while it is being written
+    
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLongArray slotSequences;
+    private final byte[] types;
+    private final String[] memberIds;
+    private final String[] isbns;
+    private final int[] copies;
+    private final long[] timestamps;
+    
+    ChangeEventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slotSequences = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            slotSequences.set(slot, slot - capacity);  // "Published" one lap before sequence 0
+        }
+        this.types = new byte[capacity];
+        this.memberIds = new String[capacity];
+        this.isbns = new String[capacity];
+        this.copies = new int[capacity];
+        this.timestamps = new long[capacity];
+    }
+    
+    int capacity() {
+        return capacity;
+    }
+    
+    // Sequence the next event will get - everything below it has been claimed
+    long head() {
+        return nextSequence.get();
+    }
+    
+    void publish(ChangeEvent.Type type, String memberId, String isbn, int copyCount, long timestampMillis) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        // Only ever waits for the producer one full lap ahead of us in the same slot, never for a consumer
+        for (int spins = 0; !slotSequences.compareAndSet(slot, sequence - capacity, sequence + WRITING); spins++) {
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();  // That producer was descheduled mid-write - let it finish
+            }
+        }
+        types[slot] = (byte) type.ordinal();
+        memberIds[slot] = memberId;
+        isbns[slot] = isbn;
+        copies[slot] = copyCount;
+        timestamps[slot] = timestampMillis;
+        slotSequences.set(slot, sequence);
+    }
+    
+    int read(long sequence, ChangeEvent target) {
+        int slot = (int) (sequence & mask);
+        long published = slotSequences.get(slot);
+        if (published != sequence) {
+            long held = published >= WRITING ? published - WRITING : published;
+            return held > sequence ? OVERRUN : NOT_YET;
+        }
+        target.set(sequence, types[slot], memberIds[slot], isbns[slot], copies[slot], timestamps[slot]);
+        VarHandle.loadLoadFence();  // The fields above must be read before the re-check below
+        return slotSequences.get(slot) == sequence ? READ : OVERRUN;
+    }
+}
@@ -0,0 +1,131 @@
+package LibraryManagement;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// One consumer of a Library's change events, running on its own daemon thread
+// Events are handed over in batches of whatever was published since the last pass. A handler that
+// throws only loses that event; a subscriber that falls more than a ring's length behind skips ahead.
+public final class ChangeSubscription implements AutoCloseable {
+    private static final int MAX_BATCH = 256;
+    private static final long MAX_IDLE_NANOS = 1_000_000;  // Back off to 1 ms sleeps when nothing happens
+    
+    private final ChangeEventRing ring;
+    private final ChangeEventHandler handler;
+    private final Runnable onClose;
+    private final Thread thread;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closing;
+    private long nextSequence;   // Only touched by the subscription thread
+    
+    ChangeSubscription(String name, ChangeEventRing ring, ChangeEventHandler handler, Runnable onClose) {
+        this.ring = ring;
+        this.handler = handler;
+        this.onClose = onClose;
+        this.nextSequence = ring.head();  // Sees changes from now on
+        this.thread = new Thread(this::run, "library-events-" + name);
+        this.thread.setDaemon(true);
+    }
+    
+    void start() {
+        thread.start();
+    }
+    
+    // Getters
+    public long getProcessedCount() {
+        return processed.get();
+    }
+    
+    public long getMissedCount() {
+        return missed.get();
+    }
+    
+    public long getFailedCount() {
+        return failed.get();
+    }
+    
+    // Delivers what has been published so far, then stops the thread
+    @Override
+    public void close() {
+        if (closing) {
+            return;
+        }
+        closing = true;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        onClose.run();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void run() {
+        ChangeEvent event = new ChangeEvent();
+        long idleNanos = 0;
+        while (true) {
+            boolean finalPass = closing;  // Read before head(), so nothing published before close() is left behind
+            int delivered = drainBatch(event);
+            if (delivered > 0) {
+                idleNanos = 0;
+                continue;
+            }
+            if (finalPass && nextSequence >= ring.head()) {
+                return;
+            }
+            if (finalPass) {
+                Thread.onSpinWait();  // A producer is still writing an event we must deliver
+                continue;
+            }
+            idleNanos = idleNanos == 0 ? 1_000 : Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+            LockSupport.parkNanos(idleNanos);
+        }
+    }
+    
+    private int drainBatch(ChangeEvent event) {
+        long head = ring.head();
+        if (head - nextSequence > ring.capacity()) {
+            skipTo(head - ring.capacity());
+        }
+        int delivered = 0;
+        while (nextSequence < head && delivered < MAX_BATCH) {
+            int status = ring.read(nextSequence, event);
+            if (status == ChangeEventRing.NOT_YET) {
+                break;
+            }
+            if (status == ChangeEventRing.OVERRUN) {
+                skipTo(Math.max(nextSequence + 1, ring.head() - ring.capacity()));
+                continue;
+            }
+            try {
+                handler.onEvent(event);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+            nextSequence++;
+            delivered++;
+        }
+        if (delivered > 0) {
+            processed.addAndGet(delivered);
+            try {
+                handler.onBatchEnd();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        }
+        return delivered;
+    }
+    
+    private void skipTo(long sequence) {
+        missed.addAndGet(sequence - nextSequence);
+        nextSequence = sequence;
+    }
+}
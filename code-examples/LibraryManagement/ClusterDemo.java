@@ -0,0 +1,194 @@
+package LibraryManagement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Demo for LibraryNode/LibraryClusterClient - starts a few node processes on this machine and uses them as one library
+public class ClusterDemo {
+    private static final long RESERVATION_LEASE_MILLIS = 1_000;  // Short, so the demo can watch one expire
+    
+    public static void main(String[] args) throws Exception {
+        int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        List<Process> processes = new ArrayList<>();
+        List<InetSocketAddress> nodes = new ArrayList<>();
+        try {
+            for (int partition = 0; partition < nodeCount; partition++) {
+                Process process = startNode(partition, nodeCount);
+                processes.add(process);
+                nodes.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), awaitPort(process)));
+            }
+            System.out.println("=== Cluster of " + nodeCount + " nodes: " + nodes + " ===");
+            
+            try (LibraryClusterClient cluster = new LibraryClusterClient(nodes)) {
+                cluster.addBook(new Book("978-0132350884", "Clean Code", "Robert Martin", 2008, 2));
+                cluster.addBook(new Book("978-0137081073", "The Clean Coder", "Robert Martin", 2011));
+                cluster.addBook(new Book("978-0134494166", "Clean Architecture", "Robert Martin", 2017));
+                cluster.addBook(new Book("978-0134685991", "Effective Java", "Joshua Bloch", 2018, 3));
+                cluster.addBook(new Book("978-0596009205", "Head First Java", "Kathy Sierra", 2005));
+                for (String isbn : List.of("978-0132350884", "978-0137081073", "978-0134494166",
+                        "978-0134685991", "978-0596009205")) {
+                    System.out.println("  " + isbn + " -> node " + ClusterProtocol.partitionOf(isbn, nodeCount));
+                }
+                
+                Member alice = new Member("M001", "Alice Johnson", "alice@email.com");
+                alice.setMaxBorrowLimit(2);
+                cluster.registerMember(alice);
+                cluster.registerMember(new Member("M002", "Bob Smith", "bob@email.com"));
+                System.out.println(cluster);
+                
+                System.out.println("\n=== Checkouts across nodes ===");
+                cluster.checkoutBook("M001", "978-0132350884");
+                cluster.checkoutBook("M001", "0-13-468599-7");  // ISBN-10 spelling of Effective Java
+                cluster.checkoutBook("M002", "978-0596009205");
+                System.out.println("Clean Code: " + cluster.findBookByIsbn("978-0132350884"));
+                
+                try {
+                    cluster.checkoutBook("M001", "978-0134494166");  // Third loan, on whichever node
+                } catch (IllegalStateException e) {
+                    System.out.println("M001 third loan: " + e.getMessage());
+                }
+                try {
+                    cluster.checkoutBook("M002", "978-0596009205");
+                } catch (IllegalStateException e) {
+                    System.out.println("M002 second copy: " + e.getMessage());
+                }
+                try {
+                    cluster.checkoutBook("M999", "978-0596009205");
+                } catch (IllegalArgumentException e) {
+                    System.out.println("M999: " + e.getMessage());
+                }
+                
+                System.out.println("\n=== Scatter-gather queries ===");
+                cluster.findBooksByAuthor("robert martin").forEach(book -> System.out.println("  by Martin: " + book));
+                cluster.findAvailableBooks().forEach(book -> System.out.println("  available: " + book));
+                
+                System.out.println("\n=== Returns ===");
+                cluster.returnBook("M001", "978-0132350884");
+                cluster.checkoutBook("M001", "978-0134494166");  // The freed slot counts on every node
+                System.out.println("Clean Architecture: " + cluster.findBookByIsbn("978-0134494166"));
+                System.out.println(cluster);
+                
+                System.out.println("\n=== Client that dies after reserving a loan ===");
+                Member carol = new Member("M003", "Carol White", "carol@email.com");
+                carol.setMaxBorrowLimit(1);
+                cluster.registerMember(carol);
+                abandonReservation(nodes.get(ClusterProtocol.homeOf("M003", nodeCount)), "M003", "978-0137081073");
+                try {
+                    cluster.checkoutBook("M003", "978-0137081073");
+                } catch (IllegalStateException e) {
+                    System.out.println("M003 while the slot is reserved: " + e.getMessage());
+                }
+                Thread.sleep(RESERVATION_LEASE_MILLIS + 200);
+                cluster.checkoutBook("M003", "978-0137081073");
+                System.out.println("M003 after the lease ran out: " + cluster.findBookByIsbn("978-0137081073"));
+                
+                System.out.println("\n=== Confirms and releases that never reach the home node ===");
+                Member dave = new Member("M004", "Dave Brown", "dave@email.com");
+                dave.setMaxBorrowLimit(2);
+                cluster.registerMember(dave);
+                InetSocketAddress home = nodes.get(ClusterProtocol.homeOf("M004", nodeCount));
+                String effectiveJava = "978-0134685991";
+                InetSocketAddress bookNode = nodes.get(ClusterProtocol.partitionOf(effectiveJava, nodeCount));
+                long reservation = send(home, request(ClusterProtocol.RESERVE_LOAN, "M004", effectiveJava)).readLong();
+                send(bookNode, request(ClusterProtocol.CHECKOUT, "M004", effectiveJava));  // Confirm lost
+                Thread.sleep(RESERVATION_LEASE_MILLIS + 200);
+                System.out.println("Lent but the lease ran out: home node counts " + cluster.getLoanCount("M004"));
+                cluster.reconcileLoans("M004");
+                System.out.println("After reconcileLoans: " + cluster.getLoanCount("M004"));
+                ClusterProtocol.Message confirm = request(ClusterProtocol.CONFIRM_LOAN, "M004");
+                confirm.writeLong(reservation);
+                ClusterProtocol.writeString(confirm, effectiveJava);
+                send(home, confirm);  // The late confirm, arriving after all
+                System.out.println("Late confirm of the same loan: " + cluster.getLoanCount("M004"));
+                send(bookNode, request(ClusterProtocol.RETURN, "M004", effectiveJava));  // Release lost
+                System.out.println("Returned but not released: " + cluster.getLoanCount("M004"));
+                cluster.reconcileLoans("M004");
+                System.out.println("After reconcileLoans: " + cluster.getLoanCount("M004"));
+                cluster.checkoutBook("M004", "978-0132350884");
+                cluster.returnBook("M004", "978-0132350884");
+                send(home, request(ClusterProtocol.RELEASE_LOAN, "M004", "978-0132350884"));  // A retried release
+                System.out.println("Checkout, return and a repeated release: " + cluster.getLoanCount("M004"));
+                
+                System.out.println("\n=== Client with the node list in the wrong order ===");
+                List<InetSocketAddress> reversed = new ArrayList<>(nodes);
+                Collections.reverse(reversed);
+                try (LibraryClusterClient misordered = new LibraryClusterClient(reversed)) {
+                    misordered.returnBook("M003", "978-0137081073");  // Redirected to the owning node
+                    System.out.println("The Clean Coder: " + misordered.findBookByIsbn("978-0137081073"));
+                    System.out.println("Available on every node: " + misordered.findAvailableBooks().size() + " books");
+                }
+                
+                cluster.shutdownCluster();
+            }
+            for (Process process : processes) {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Node " + process.pid() + " did not stop");
+                }
+            }
+            System.out.println("\nAll nodes stopped");
+        } finally {
+            processes.forEach(Process::destroy);
+        }
+    }
+    
+    // Same JVM and class path as this one; node errors go to our stderr
+    private static Process startNode(int partition, int partitionCount) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                LibraryNode.class.getName(), String.valueOf(partition), String.valueOf(partitionCount), "0",
+                String.valueOf(RESERVATION_LEASE_MILLIS))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+    
+    // Reserves a loan slot the way the client does, then disconnects without checking anything out
+    private static void abandonReservation(InetSocketAddress home, String memberId, String isbn) throws IOException {
+        send(home, request(ClusterProtocol.RESERVE_LOAN, memberId, isbn));
+    }
+    
+    // One step of a client protocol exchange, sent on its own - the steps the demo leaves out are "lost"
+    private static ClusterProtocol.Message request(byte operation, String... strings) throws IOException {
+        ClusterProtocol.Message request = new ClusterProtocol.Message(operation);
+        for (String value : strings) {
+            ClusterProtocol.writeString(request, value);
+        }
+        return request;
+    }
+    
+    private static DataInputStream send(InetSocketAddress node, ClusterProtocol.Message request) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(node);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out.writeInt(ClusterProtocol.PROTOCOL);
+            request.sendTo(out);
+            DataInputStream response = ClusterProtocol.readFrame(in);
+            if (response == null || response.readByte() != ClusterProtocol.OK) {
+                throw new IllegalStateException("Node " + node + " refused the request");
+            }
+            return response;
+        }
+    }
+    
+    private static int awaitPort(Process process) throws Exception {
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        String line = out.readLine();
+        if (line == null || !line.startsWith("LISTENING ")) {
+            throw new IllegalStateException("Node did not start: " + line);
+        }
+        return Integer.parseInt(line.substring("LISTENING ".length()));
+    }
+}
@@ -0,0 +1,162 @@
+package LibraryManagement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Wire format shared by LibraryNode and LibraryClusterClient
+//
+// A connection opens with the client sending PROTOCOL (int). After that every message is a frame:
+// payload length (int), then the payload. A request payload starts with its operation code, a response
+// payload with a status code; the fields follow in DataOutput encoding, strings as a presence flag plus
+// modified UTF-8 - the same encoding as the journal.
+final class ClusterProtocol {
+    static final int PROTOCOL = 0x4C494233;  // "LIB3" - home node counts loans per book, RECONCILE_LOANS
+    static final int MAX_FRAME = 64 << 20;
+    
+    // Requests
+    static final byte ADD_BOOK = 1;          // book                      -> -
+    static final byte REGISTER_MEMBER = 2;   // member, retry (boolean)   -> -   (a retry accepts the same member again)
+    static final byte CHECKOUT = 3;          // memberId, isbn            -> -
+    static final byte RETURN = 4;            // memberId, isbn            -> -
+    static final byte FIND_BOOK = 5;         // isbn                      -> present (boolean), book
+    static final byte FIND_BY_AUTHOR = 6;    // author                    -> count, books
+    static final byte FIND_AVAILABLE = 7;    // afterIsbn, limit          -> count, books, next cursor (null at the end)
+    static final byte RESERVE_LOAN = 8;      // memberId, isbn            -> reservation (long)   (home node only)
+    static final byte RELEASE_LOAN = 9;      // memberId, isbn            -> -   (home node only, after a return)
+    static final byte COUNTS = 10;           // -                         -> books, members, partition, partitionCount
+    static final byte SHUTDOWN = 11;         // -                         -> -
+    static final byte CONFIRM_LOAN = 12;     // memberId, reservation, isbn -> -   (home node only, after the checkout)
+    static final byte CANCEL_RESERVATION = 13;  // memberId, reservation  -> -   (home node only, checkout failed)
+    static final byte LOAN_SLOTS = 14;       // memberId                  -> version (long), count, ISBNs counted as lent
+    static final byte MEMBER_LOANS = 15;     // memberId                  -> count, ISBNs this node has lent to the member
+    static final byte RECONCILE_LOANS = 16;  // memberId, version, count, ISBNs -> applied (boolean)   (home node only)
+    // CONFIRM_LOAN, CANCEL_RESERVATION and RELEASE_LOAN name the loan they change, so sending one twice is
+    // harmless and a client retries them. ISBNs in answers are canonical (see Isbn.normalize).
+    
+    // Response status - NOT_FOUND and REJECTED carry the message of the library's own exception
+    static final byte OK = 0;
+    static final byte NOT_FOUND = 1;         // IllegalArgumentException
+    static final byte REJECTED = 2;          // IllegalStateException
+    static final byte FAILED = 3;            // Anything else
+    static final byte MISROUTED = 4;         // Owning partition (int), then the message - resend it there
+    
+    static final int MAX_PAGE_SIZE = 10_000;  // FIND_AVAILABLE books per frame, well inside MAX_FRAME
+    
+    private ClusterProtocol() {
+    }
+    
+    // Partitioning - the same spread as ShardedLibrary, so every spelling of an ISBN lands on one node
+    static int partitionOf(String isbn, int partitions) {
+        return spread(Isbn.hash(isbn), partitions);
+    }
+    
+    static int homeOf(String memberId, int partitions) {
+        return spread(memberId.hashCode(), partitions);
+    }
+    
+    private static int spread(int hash, int partitions) {
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+    
+    // Builds one payload in memory, then sends it as a single length-prefixed frame
+    static final class Message extends DataOutputStream {
+        Message(byte code) throws IOException {
+            super(new ByteArrayOutputStream(64));
+            writeByte(code);
+        }
+        
+        void sendTo(DataOutputStream socket) throws IOException {
+            flush();
+            ByteArrayOutputStream payload = (ByteArrayOutputStream) out;
+            socket.writeInt(payload.size());
+            payload.writeTo(socket);
+            socket.flush();
+        }
+    }
+    
+    // Null at a clean end of stream between frames
+    static DataInputStream readFrame(DataInputStream socket) throws IOException {
+        int length;
+        try {
+            length = socket.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        byte[] payload = new byte[length];
+        socket.readFully(payload);
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+    
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+    
+    static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+    
+    static List<String> readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_FRAME) {
+            throw new IOException("Invalid string count " + count);
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+    
+    static void writeBook(DataOutput out, Book book) throws IOException {
+        writeString(out, book.getIsbn());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        out.writeInt(book.getYearPublished());
+        out.writeInt(book.getTotalCopies());
+        out.writeInt(book.getAvailableCopies());
+    }
+    
+    // A detached copy with the availability the node reported
+    static Book readBook(DataInput in) throws IOException {
+        Book book = new Book(readString(in), readString(in), readString(in), in.readInt(), in.readInt());
+        for (int onLoan = book.getTotalCopies() - in.readInt(); onLoan > 0; onLoan--) {
+            book.checkout();
+        }
+        return book;
+    }
+    
+    static void writeMember(DataOutput out, Member member) throws IOException {
+        writeString(out, member.getMemberId());
+        writeString(out, member.getName());
+        writeString(out, member.getEmail());
+        out.writeInt(member.getMaxBorrowLimit());
+    }
+    
+    static Member readMember(DataInput in) throws IOException {
+        Member member = new Member(readString(in), readString(in), readString(in));
+        member.setMaxBorrowLimit(in.readInt());
+        return member;
+    }
+}
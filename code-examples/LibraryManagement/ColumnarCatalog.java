@@ -0,0 +1,217 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// CatalogStorage.COLUMNAR - one row per book across dense columns instead of a set entry per index
+//   books        the Book itself, null for a free row - rows hand back the live Book, no copies
+//   authorCodes  StringDictionary code of the author key, so an author lookup compares ints
+//   years        publication year
+//   available    one bit per row, set while at least one copy is on the shelf
+// That is about 12 bytes per book where the three hash indexes spend a set entry each, and author,
+// year and availability queries become sequential scans of int and long arrays.
+//
+// Columns are cut into fixed chunks that never move: growing copies only the chunk table, so an
+// availability flip can never land in an array that is being replaced. Adding and removing rows takes
+// rowLock; availability flips are a CAS on one word of bits and never wait for it, so checkouts do not
+// serialize here. Rows of removed books are reused. Scans take no lock - a row's columns are written
+// before its book is published, and a matching row is re-checked after reading the book, so a scan
+// never returns a book from a row that was reused under it.
+final class ColumnarCatalog implements CatalogStore {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;  // 4096 rows per chunk
+    private static final int SLOT_MASK = CHUNK_SIZE - 1;
+    
+    // One CHUNK_SIZE slice of every column
+    private static final class Chunk {
+        final AtomicReferenceArray<Book> books = new AtomicReferenceArray<>(CHUNK_SIZE);
+        final int[] authorCodes = new int[CHUNK_SIZE];
+        final int[] years = new int[CHUNK_SIZE];
+        final AtomicLongArray available = new AtomicLongArray(CHUNK_SIZE / Long.SIZE);
+    }
+    
+    private final ReentrantLock rowLock = new ReentrantLock();     // Serializes adding and removing rows
+    private final StringDictionary authorKeys = new StringDictionary();  // Encoded under rowLock; never shrinks
+    private final AtomicInteger availableCount = new AtomicInteger();   // Set bits in the available column
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int rowCount;         // Rows handed out so far, free ones included
+    private int[] freeRows = new int[16];  // Rows of removed books, reused first - guarded by rowLock
+    private int freeRowCount;
+    
+    @Override
+    public void add(Book book) {
+        rowLock.lock();
+        try {
+            int row = freeRowCount > 0 ? freeRows[--freeRowCount] : newRow();
+            Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+            int slot = row & SLOT_MASK;
+            chunk.authorCodes[slot] = authorKeys.encode(Library.authorKey(book.getAuthor()));
+            chunk.years[slot] = book.getYearPublished();
+            setAvailable(chunk, slot, book.isAvailable());
+            book.setCatalogRow(row);
+            chunk.books.set(slot, book);  // Publishes the row's columns to scans
+            if (row == rowCount) {
+                rowCount = row + 1;
+            }
+        } finally {
+            rowLock.unlock();
+        }
+    }
+    
+    // The next never-used row, adding a chunk when the last one is full
+    private int newRow() {
+        int row = rowCount;
+        Chunk[] current = chunks;
+        if ((row >>> CHUNK_SHIFT) == current.length) {
+            Chunk[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = new Chunk();
+            chunks = grown;
+        }
+        return row;
+    }
+    
+    @Override
+    public void remove(Book book) {
+        rowLock.lock();
+        try {
+            int row = book.getCatalogRow();
+            Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+            int slot = row & SLOT_MASK;
+            chunk.books.set(slot, null);
+            setAvailable(chunk, slot, false);
+            if (freeRowCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeRowCount * 2);
+            }
+            freeRows[freeRowCount++] = row;
+        } finally {
+            rowLock.unlock();
+        }
+    }
+    
+    @Override
+    public void availabilityChanged(Book book) {
+        int row = book.getCatalogRow();
+        setAvailable(chunks[row >>> CHUNK_SHIFT], row & SLOT_MASK, book.isAvailable());
+    }
+    
+    private void setAvailable(Chunk chunk, int slot, boolean available) {
+        long bit = 1L << slot;  // Shift distance is taken mod 64
+        int word = slot >>> 6;
+        long before = available
+                ? chunk.available.getAndAccumulate(word, bit, (bits, set) -> bits | set)
+                : chunk.available.getAndAccumulate(word, ~bit, (bits, kept) -> bits & kept);
+        if (((before & bit) != 0) != available) {
+            availableCount.addAndGet(available ? 1 : -1);
+        }
+    }
+    
+    @Override
+    public List<Book> findByAuthor(String authorKey) {
+        List<Book> result = new ArrayList<>();
+        int code = authorKeys.codeOf(authorKey);
+        if (code < 0) {
+            return result;
+        }
+        int rows = rowCount;  // Read before chunks, which always covers it
+        Chunk[] current = chunks;
+        for (int first = 0; first < rows; first += CHUNK_SIZE) {
+            Chunk chunk = current[first >>> CHUNK_SHIFT];
+            int[] codes = chunk.authorCodes;
+            int end = Math.min(CHUNK_SIZE, rows - first);
+            for (int slot = 0; slot < end; slot++) {
+                if (codes[slot] == code) {
+                    Book book = chunk.books.get(slot);
+                    if (book != null && codes[slot] == code) {
+                        result.add(book);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public List<Book> findPublishedBetween(int fromYear, int toYear) {
+        List<Book> result = new ArrayList<>();
+        int rows = rowCount;
+        Chunk[] current = chunks;
+        for (int first = 0; first < rows; first += CHUNK_SIZE) {
+            Chunk chunk = current[first >>> CHUNK_SHIFT];
+            int[] years = chunk.years;
+            int end = Math.min(CHUNK_SIZE, rows - first);
+            for (int slot = 0; slot < end; slot++) {
+                if (years[slot] >= fromYear && years[slot] <= toYear) {
+                    Book book = chunk.books.get(slot);
+                    if (book != null && years[slot] >= fromYear && years[slot] <= toYear) {
+                        result.add(book);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    // Walks the set bits only, 64 rows per word
+    @Override
+    public List<Book> findAvailable() {
+        List<Book> result = new ArrayList<>(availableCount.get());
+        int rows = rowCount;
+        Chunk[] current = chunks;
+        for (int first = 0; first < rows; first += CHUNK_SIZE) {
+            Chunk chunk = current[first >>> CHUNK_SHIFT];
+            for (int word = 0; word < chunk.available.length(); word++) {
+                long bits = chunk.available.get(word);
+                while (bits != 0) {
+                    Book book = chunk.books.get(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                    if (book != null) {  // Null if removed since the bit was read
+                        result.add(book);
+                    }
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public int availableCount() {
+        return availableCount.get();
+    }
+    
+    // One pass over the year column; consecutive rows usually share a decade, so most rows skip the map
+    @Override
+    public SortedMap<Integer, Integer> countsByDecade() {
+        Map<Integer, int[]> counts = new HashMap<>();
+        int lastDecade = 0;
+        int[] lastCount = null;
+        int rows = rowCount;
+        Chunk[] current = chunks;
+        for (int first = 0; first < rows; first += CHUNK_SIZE) {
+            Chunk chunk = current[first >>> CHUNK_SHIFT];
+            int end = Math.min(CHUNK_SIZE, rows - first);
+            for (int slot = 0; slot < end; slot++) {
+                if (chunk.books.get(slot) == null) {
+                    continue;
+                }
+                int decade = Library.decadeOf(chunk.years[slot]);
+                if (lastCount == null || decade != lastDecade) {
+                    lastDecade = decade;
+                    lastCount = counts.computeIfAbsent(decade, key -> new int[1]);
+                }
+                lastCount[0]++;
+            }
+        }
+        SortedMap<Integer, Integer> sorted = new TreeMap<>();
+        counts.forEach((decade, count) -> sorted.put(decade, count[0]));
+        return sorted;
+    }
+}
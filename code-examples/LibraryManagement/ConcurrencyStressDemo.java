@@ -0,0 +1,683 @@
+package LibraryManagement;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Multi-threaded stress run for Library - exits with status 1 if any invariant breaks
+public class ConcurrencyStressDemo {
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int BOOKS = 200;
+    private static final int MEMBERS = 50;
+    private static final int OPERATIONS_PER_THREAD = 50_000;
+    private static final int RACE_ROUNDS = 2_000;
+    
+    public static void main(String[] args) throws InterruptedException {
+        boolean passed = sameBookRace() & bestsellerRace() & holdQueueRace() & titleIndexRace(CatalogStorage.INDEXED)
+                & titleIndexRace(CatalogStorage.COLUMNAR) & randomLoad(CatalogStorage.INDEXED)
+                & randomLoad(CatalogStorage.COLUMNAR) & shardedLoads() & shardedHolds() & viewReports();
+        System.out.println(passed ? "PASS" : "FAIL");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+    
+    // Every thread grabs the same ISBN at once - exactly one checkout may win each round
+    private static boolean sameBookRace() throws InterruptedException {
+        Library library = new Library("Race Library");
+        library.addBook(new Book("RACE-1", "Contended Title", "Some Author", 2024));
+        for (int m = 0; m < THREADS; m++) {
+            library.registerMember(new Member("R" + m, "Racer " + m, "racer" + m + "@example.com"));
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        int badRounds = 0;
+        for (int round = 0; round < RACE_ROUNDS; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(THREADS);
+            AtomicInteger winners = new AtomicInteger();
+            for (int m = 0; m < THREADS; m++) {
+                String memberId = "R" + m;
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                        library.checkoutBook(memberId, "RACE-1");
+                        winners.incrementAndGet();
+                    } catch (IllegalStateException expected) {
+                        // Lost the race
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+            if (winners.get() != 1) {
+                badRounds++;
+            }
+            for (Member member : library.getMembers()) {
+                if (member.getBorrowedCount() > 0) {
+                    library.returnBook(member.getMemberId(), "RACE-1");
+                }
+            }
+        }
+        pool.shutdown();
+        
+        System.out.printf("Same-book race: %d rounds x %d threads, %d rounds without exactly one winner%n",
+                RACE_ROUNDS, THREADS, badRounds);
+        return badRounds == 0;
+    }
+    
+    // Many members race for a title with a few copies - never more loans than copies
+    private static boolean bestsellerRace() throws InterruptedException {
+        int copies = 5;
+        int members = THREADS * 4;
+        Library library = new Library("Bestseller Library");
+        library.addBook(new Book("HOT-1", "Bestseller", "Popular Author", 2025, copies));
+        for (int m = 0; m < members; m++) {
+            library.registerMember(new Member("B" + m, "Reader " + m, "reader" + m + "@example.com"));
+        }
+        
+        AtomicInteger loans = new AtomicInteger();
+        AtomicInteger overbooked = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        for (int round = 0; round < RACE_ROUNDS; round++) {
+            CountDownLatch done = new CountDownLatch(members);
+            for (int m = 0; m < members; m++) {
+                String memberId = "B" + m;
+                pool.execute(() -> {
+                    try {
+                        library.checkoutBook(memberId, "HOT-1");
+                        if (loans.incrementAndGet() > copies) {
+                            overbooked.incrementAndGet();
+                        }
+                        if (ThreadLocalRandom.current().nextBoolean()) {
+                            loans.decrementAndGet();  // Count down first - the copy is free once returned
+                            library.returnBook(memberId, "HOT-1");
+                        }
+                    } catch (IllegalStateException expected) {
+                        // No copy left
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+            for (Member member : library.getMembers()) {
+                if (member.getBorrowedCount() > 0) {
+                    loans.decrementAndGet();
+                    library.returnBook(member.getMemberId(), "HOT-1");
+                }
+            }
+        }
+        pool.shutdown();
+        
+        Book book = library.findBookByIsbn("HOT-1");
+        System.out.printf("Bestseller race: %d rounds x %d members for %d copies, %d overbooked, copies back=%d/%d%n",
+                RACE_ROUNDS, members, copies, overbooked.get(), book.getAvailableCopies(), book.getTotalCopies());
+        return overbooked.get() == 0
+                && book.getAvailableCopies() == copies
+                && library.getAvailableCopiesCount() == copies;
+    }
+    
+    // Members queue for one copy and pass it along through hold hand-offs; some give up after
+    // a very short wait, so cancellations race with grants. The copy must never be lost or shared.
+    private static boolean holdQueueRace() throws InterruptedException {
+        int waiters = THREADS * 2;
+        int loansPerMember = RACE_ROUNDS / 10;
+        Library library = new Library("Hold Library");
+        library.addBook(new Book("HOLD-1", "Waiting List Title", "Popular Author", 2025));
+        for (int m = 0; m < waiters; m++) {
+            library.registerMember(new Member("H" + m, "Patron " + m, "patron" + m + "@example.com"));
+        }
+        
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger shared = new AtomicInteger();
+        AtomicInteger giveUps = new AtomicInteger();
+        AtomicInteger stuck = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(waiters);
+        CountDownLatch done = new CountDownLatch(waiters);
+        for (int m = 0; m < waiters; m++) {
+            String memberId = "H" + m;
+            pool.execute(() -> {
+                try {
+                    int loans = 0;
+                    while (loans < loansPerMember) {
+                        boolean impatient = ThreadLocalRandom.current().nextInt(4) == 0;
+                        try {
+                            library.checkoutBookOrWait(memberId, "HOLD-1",
+                                    impatient ? Duration.ofNanos(1_000) : Duration.ofSeconds(10));
+                        } catch (TimeoutException e) {
+                            if (impatient) {
+                                giveUps.incrementAndGet();
+                            } else {
+                                stuck.incrementAndGet();  // Nobody handed the copy over for 10 s
+                                return;
+                            }
+                            continue;
+                        }
+                        if (holders.incrementAndGet() > 1) {
+                            shared.incrementAndGet();
+                        }
+                        LockSupport.parkNanos(20_000);  // Keep it a moment so the others have to queue
+                        holders.decrementAndGet();
+                        library.returnBook(memberId, "HOLD-1");
+                        loans++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        pool.shutdown();
+        
+        Book book = library.findBookByIsbn("HOLD-1");
+        System.out.printf("Hold queue race: %d members x %d loans, %d give-ups, %d shared, %d stuck, holds left=%d, available=%s%n",
+                waiters, loansPerMember, giveUps.get(), shared.get(), stuck.get(),
+                library.getHoldCount("HOLD-1"), book.isAvailable());
+        return shared.get() == 0 && stuck.get() == 0
+                && library.getHoldCount("HOLD-1") == 0 && book.isAvailable();
+    }
+    
+    // Every thread adds and removes its own books, but all titles share their words, so one thread keeps
+    // emptying a word's posting list while another adds to it; they also share a publication year. After
+    // each round title, author and year search must find exactly the books in the catalog - none lost, none stale.
+    // Under CatalogStorage.COLUMNAR the churn also frees and reuses rows while the finders scan them.
+    private static boolean titleIndexRace(CatalogStorage storage) throws InterruptedException {
+        int booksPerThread = 4;
+        int limit = THREADS * booksPerThread + 1;
+        Library library = new Library("Title Library", storage);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        int lost = 0;
+        int stale = 0;
+        for (int round = 0; round < RACE_ROUNDS / 10; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                String prefix = "TITLE-" + t + "-";
+                pool.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                        for (int i = 0; i < 100; i++) {
+                            int k = random.nextInt(booksPerThread);
+                            Book book = library.findBookByIsbn(prefix + k);
+                            if (book != null) {
+                                library.removeBook(book);
+                            } else {
+                                library.addBook(new Book(prefix + k, "Shared Churn Volume " + k, "Some Author", 2024));
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+            
+            List<Book> found = library.searchTitles("churn", limit);
+            int staleNow = 0;
+            for (Book book : found) {
+                if (library.findBookByIsbn(book.getIsbn()) != book) {
+                    staleNow++;
+                }
+            }
+            stale += staleNow;
+            lost += library.getTotalBooks() - (found.size() - staleNow);
+            if (library.searchTitles("shared volume", limit).size() != library.getTotalBooks()) {
+                lost++;
+            }
+            if (library.findBooksPublishedBetween(2020, 2029).size() != library.getTotalBooks()) {
+                lost++;
+            }
+            if (library.findBooksByAuthor("some author").size() != library.getTotalBooks()) {
+                lost++;
+            }
+        }
+        pool.shutdown();
+        
+        System.out.printf("Title, author and year index race (%s): %d rounds x %d threads, %d books left, %d lost, %d stale%n",
+                storage, RACE_ROUNDS / 10, THREADS, library.getTotalBooks(), lost, stale);
+        return lost == 0 && stale == 0;
+    }
+    
+    // Random checkouts and returns across shared members and books, then check the books balance
+    private static boolean randomLoad(CatalogStorage storage) throws InterruptedException {
+        Library library = new Library("Stress Library", storage);
+        for (int b = 0; b < BOOKS; b++) {
+            library.addBook(new Book("ISBN-" + b, "Title " + b, "Author " + (b % 10), 2000 + b % 25));
+        }
+        for (int m = 0; m < MEMBERS; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "member" + m + "@example.com"));
+        }
+        
+        AtomicInteger checkouts = new AtomicInteger();
+        AtomicInteger returns = new AtomicInteger();
+        AtomicInteger limitViolations = new AtomicInteger();
+        // Audit feed - counts events per type on its own thread while the load runs
+        long[] eventCounts = new long[ChangeEvent.Type.values().length];
+        long[] outOfOrder = new long[1];
+        long[] lastSequence = {-1};
+        ChangeSubscription audit = library.subscribe("audit", event -> {
+            eventCounts[event.getType().ordinal()]++;
+            if (event.getSequence() <= lastSequence[0]) {
+                outOfOrder[0]++;
+            }
+            lastSequence[0] = event.getSequence();
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String memberId = "M" + random.nextInt(MEMBERS);
+                    String isbn = "ISBN-" + random.nextInt(BOOKS);
+                    try {
+                        if (random.nextBoolean()) {
+                            library.checkoutBook(memberId, isbn);
+                            checkouts.incrementAndGet();
+                            Member member = library.findMemberById(memberId);
+                            if (member.getBorrowedCount() > member.getMaxBorrowLimit()) {
+                                limitViolations.incrementAndGet();
+                            }
+                        } else {
+                            library.returnBook(memberId, isbn);
+                            returns.incrementAndGet();
+                        }
+                    } catch (IllegalStateException expected) {
+                        // Book taken, limit reached or not borrowed by this member
+                    }
+                }
+            });
+        }
+        // Reporter - snapshots run alongside the writers without pausing them, and every one must balance:
+        // copies out on loan == loans, authors and decades add up to the catalog
+        AtomicInteger snapshots = new AtomicInteger();
+        AtomicInteger unbalancedSnapshots = new AtomicInteger();
+        Thread reporter = new Thread(() -> {
+            while (!pool.isTerminated()) {
+                if (!balances(library.getStatistics().snapshot())) {
+                    unbalancedSnapshots.incrementAndGet();
+                }
+                snapshots.incrementAndGet();
+            }
+        });
+        reporter.start();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        reporter.join();
+        audit.close();  // Delivers everything published so far
+        long checkoutEvents = eventCounts[ChangeEvent.Type.BOOK_CHECKED_OUT.ordinal()];
+        long returnEvents = eventCounts[ChangeEvent.Type.BOOK_RETURNED.ordinal()];
+        boolean eventsBalance = audit.getProcessedCount() + audit.getMissedCount() == checkouts.get() + returns.get()
+                && (audit.getMissedCount() > 0 || (checkoutEvents == checkouts.get() && returnEvents == returns.get()));
+        
+        // Each checked-out book must be held by exactly one member, and nobody may exceed the limit
+        Map<Book, Integer> holders = new HashMap<>();
+        int outstandingLoans = 0;
+        for (Member member : library.getMembers()) {
+            List<Book> borrowed = member.getBorrowedBooks();
+            outstandingLoans += borrowed.size();
+            if (borrowed.size() > member.getMaxBorrowLimit()) {
+                limitViolations.incrementAndGet();
+            }
+            borrowed.forEach(book -> holders.merge(book, 1, Integer::sum));
+        }
+        int doubleCheckouts = 0;
+        int availableByScan = 0;
+        Map<String, Integer> byAuthorScan = new HashMap<>();
+        for (Book book : library.getBooks()) {
+            byAuthorScan.merge(book.getAuthor(), 1, Integer::sum);
+            int holderCount = holders.getOrDefault(book, 0);
+            if (holderCount > 1 || (holderCount == 1) == book.isAvailable()) {
+                doubleCheckouts++;
+            }
+            if (book.isAvailable()) {
+                availableByScan++;
+            }
+        }
+        
+        int authorMismatches = 0;
+        for (Map.Entry<String, Integer> author : byAuthorScan.entrySet()) {
+            if (library.findBooksByAuthor(author.getKey()).size() != author.getValue()) {
+                authorMismatches++;
+            }
+        }
+        
+        System.out.printf("Random load (%s): %d threads, %d checkouts, %d returns, %d outstanding loans%n",
+                storage, THREADS, checkouts.get(), returns.get(), outstandingLoans);
+        System.out.printf("  double checkouts=%d, limit violations=%d, available count=%d (scan=%d), due dates=%d, "
+                + "author mismatches=%d%n", doubleCheckouts, limitViolations.get(), library.getAvailableBooksCount(),
+                availableByScan, library.getPendingDueDatesCount(), authorMismatches);
+        System.out.printf("  events: %d checked out, %d returned, %d missed, %d out of order%n",
+                checkoutEvents, returnEvents, audit.getMissedCount(), outOfOrder[0]);
+        StatisticsSnapshot statistics = library.getStatistics().snapshot();
+        boolean statisticsBalance = balances(statistics) && unbalancedSnapshots.get() == 0;
+        System.out.printf("  statistics: %d snapshots during the load, %d unbalanced, loans=%d, available copies=%d%n",
+                snapshots.get(), unbalancedSnapshots.get(), statistics.totalLoans(),
+                statistics.catalog().availableCopies());
+        return doubleCheckouts == 0
+                && authorMismatches == 0
+                && eventsBalance
+                && outOfOrder[0] == 0
+                && statisticsBalance
+                && statistics.totalLoans() == outstandingLoans
+                && statistics.catalog().availableCopies() == library.getAvailableCopiesCount()
+                && limitViolations.get() == 0
+                && checkouts.get() - returns.get() == outstandingLoans
+                && library.getPendingDueDatesCount() == outstandingLoans  // Returned loans left the wheel
+                && library.getAvailableBooksCount() == availableByScan
+                && library.findAvailableBooks().size() == availableByScan;
+    }
+    
+    private static boolean balances(StatisticsSnapshot snapshot) {
+        long availableByAuthor = 0;
+        long copiesByDecade = 0;
+        for (CatalogCounts counts : snapshot.byAuthor().values()) {
+            availableByAuthor += counts.availableCopies();
+        }
+        for (CatalogCounts counts : snapshot.byDecade().values()) {
+            copiesByDecade += counts.copies();
+        }
+        return snapshot.catalog().loanedCopies() == snapshot.totalLoans()
+                && availableByAuthor == snapshot.catalog().availableCopies()
+                && copiesByDecade == snapshot.catalog().copies();
+    }
+    
+    // The sharded load at growing shard counts, for the throughput each one reaches
+    private static boolean shardedLoads() throws InterruptedException {
+        boolean passed = true;
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int shardCount : new TreeSet<>(List.of(1, 2, 4, Math.max(4, cores)))) {
+            passed &= shardedLoad(shardCount);
+        }
+        return passed;
+    }
+    
+    // The same random load against a ShardedLibrary - most checkouts cross shards, so the
+    // reserve / take copy / confirm steps and their undos run constantly
+    private static boolean shardedLoad(int shardCount) throws InterruptedException {
+        AtomicInteger checkouts = new AtomicInteger();
+        AtomicInteger returns = new AtomicInteger();
+        AtomicInteger limitViolations = new AtomicInteger();
+        long elapsedNanos;
+        try (ShardedLibrary library = new ShardedLibrary("Sharded Library", shardCount)) {
+            List<Book> books = new ArrayList<>();
+            for (int b = 0; b < BOOKS; b++) {
+                Book book = new Book("ISBN-" + b, "Title " + b, "Author " + (b % 10), 2000 + b % 25, 1 + b % 3);
+                library.addBook(book);
+                books.add(book);
+            }
+            List<Member> members = new ArrayList<>();
+            for (int m = 0; m < MEMBERS; m++) {
+                Member member = new Member("M" + m, "Member " + m, "member" + m + "@example.com");
+                library.registerMember(member);
+                members.add(member);
+            }
+            
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < THREADS; t++) {
+                pool.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String memberId = "M" + random.nextInt(MEMBERS);
+                        String isbn = "ISBN-" + random.nextInt(BOOKS);
+                        try {
+                            if (random.nextBoolean()) {
+                                library.checkoutBook(memberId, isbn);
+                                checkouts.incrementAndGet();
+                                Member member = library.findMemberById(memberId);
+                                if (member.getBorrowedCount() > member.getMaxBorrowLimit()) {
+                                    limitViolations.incrementAndGet();
+                                }
+                            } else {
+                                library.returnBook(memberId, isbn);
+                                returns.incrementAndGet();
+                            }
+                        } catch (IllegalStateException expected) {
+                            // Book taken, limit reached or not borrowed by this member
+                        }
+                    }
+                });
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.MINUTES);
+            elapsedNanos = System.nanoTime() - started;
+            
+            // Every copy off the shelf must be held by a member, and every loan must have taken a copy
+            int outstandingLoans = 0;
+            Map<Book, Integer> holders = new HashMap<>();
+            for (Member member : members) {
+                outstandingLoans += member.getBorrowedCount();
+                if (member.getBorrowedCount() > member.getMaxBorrowLimit()) {
+                    limitViolations.incrementAndGet();
+                }
+                member.getBorrowedBooks().forEach(book -> holders.merge(book, 1, Integer::sum));
+            }
+            int unbalancedBooks = 0;
+            for (Book book : books) {
+                if (book.getTotalCopies() - book.getAvailableCopies() != holders.getOrDefault(book, 0)) {
+                    unbalancedBooks++;
+                }
+            }
+            long operations = (long) THREADS * OPERATIONS_PER_THREAD;
+            System.out.printf("Sharded load: %d shards, %d threads, %d checkouts, %d returns, %d outstanding loans, %.0f ops/s%n",
+                    shardCount, THREADS, checkouts.get(), returns.get(), outstandingLoans,
+                    operations * 1e9 / elapsedNanos);
+            System.out.printf("  unbalanced books=%d, limit violations=%d, author scan=%d books%n",
+                    unbalancedBooks, limitViolations.get(), library.findBooksByAuthor("author 3").size());
+            return unbalancedBooks == 0
+                    && limitViolations.get() == 0
+                    && checkouts.get() - returns.get() == outstandingLoans
+                    && library.findBooksByAuthor("author 3").size() == BOOKS / 10
+                    && library.getTotalBooks() == BOOKS;
+        }
+    }
+    
+    // Holds on a ShardedLibrary: first a scripted queue, then every thread queueing for two copies with
+    // a short patience, so grants, cancellations and hand-offs race. Once it settles every copy must be
+    // back on the shelf with nobody waiting and no loan left behind.
+    private static boolean shardedHolds() throws InterruptedException {
+        try (ShardedLibrary library = new ShardedLibrary("Sharded Holds", 4)) {
+            library.addBook(new Book("HOLD-1", "Scripted Title", "Some Author", 2024));
+            for (int m = 0; m < THREADS; m++) {
+                library.registerMember(new Member("H" + m, "Holder " + m, "holder" + m + "@example.com"));
+            }
+            library.checkoutBook("H0", "HOLD-1");
+            CompletableFuture<Book> first = library.placeHold("H1", "HOLD-1");
+            CompletableFuture<Book> cancelled = library.placeHold("H2", "HOLD-1");
+            CompletableFuture<Book> second = library.placeHold("H3", "HOLD-1");
+            boolean scripted = !first.isDone() && library.cancelHold("H2", "HOLD-1");
+            library.returnBook("H0", "HOLD-1");
+            scripted &= first.join().getIsbn().equals("HOLD-1") && !second.isDone() && cancelled.isCancelled();
+            try {
+                library.removeBook(library.findBookByIsbn("HOLD-1"));
+                scripted = false;
+            } catch (IllegalStateException expected) {
+                // H1 has it
+            }
+            library.returnBook("H1", "HOLD-1");
+            second.join();
+            library.returnBook("H3", "HOLD-1");
+            CompletableFuture<Book> immediate = library.placeHold("H0", "HOLD-1");  // Lent at once - give it back
+            library.returnBook("H0", immediate.join().getIsbn());
+            library.removeBook(library.findBookByIsbn("HOLD-1"));
+            scripted &= library.findBookByIsbn("HOLD-1") == null && library.getTotalBooks() == 0;
+            
+            Book contended = new Book("HOLD-2", "Contended Title", "Some Author", 2024, 2);
+            library.addBook(contended);
+            AtomicInteger granted = new AtomicInteger();
+            AtomicInteger gaveUp = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                String memberId = "H" + t;
+                pool.execute(() -> {
+                    for (int i = 0; i < RACE_ROUNDS; i++) {
+                        CompletableFuture<Book> hold;
+                        try {
+                            hold = library.placeHold(memberId, "HOLD-2");
+                        } catch (IllegalStateException e) {
+                            continue;  // Still holding an earlier copy that is on its way back
+                        }
+                        try {
+                            hold.get(200, TimeUnit.MICROSECONDS);
+                        } catch (TimeoutException e) {
+                            if (hold.cancel(false)) {
+                                gaveUp.incrementAndGet();
+                                continue;
+                            }
+                        } catch (InterruptedException | ExecutionException e) {
+                            continue;
+                        }
+                        if (!hold.isCompletedExceptionally()) {
+                            granted.incrementAndGet();
+                            library.returnBook(memberId, "HOLD-2");
+                        }
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.MINUTES);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);  // Hand-offs still in flight
+            while ((contended.getAvailableCopies() != 2 || library.getHoldCount("HOLD-2") != 0)
+                    && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(1_000_000);
+            }
+            int loansLeft = 0;
+            for (int m = 0; m < THREADS; m++) {
+                loansLeft += library.findMemberById("H" + m).getBorrowedCount();
+            }
+            System.out.printf("Sharded holds: scripted queue %s, %d granted, %d gave up, %d copies on the shelf, "
+                            + "%d waiting, %d loans left%n", scripted ? "ok" : "BROKEN", granted.get(), gaveUp.get(),
+                    contended.getAvailableCopies(), library.getHoldCount("HOLD-2"), loansLeft);
+            return scripted && contended.getAvailableCopies() == 2 && library.getHoldCount("HOLD-2") == 0
+                    && loansLeft == 0;
+        }
+    }
+    
+    // Views opened while writers run must each show one moment: every writer checks out its first book
+    // before its second and returns them the other way round, so no view may show the second one out
+    // while the first is on the shelf. Meanwhile the catalog rolls over one temporary book at a time.
+    private static boolean viewReports() throws InterruptedException {
+        int writers = Math.max(2, THREADS / 2);
+        Library library = new Library("View Library");
+        for (int b = 0; b < BOOKS; b++) {
+            library.addBook(new Book("ISBN-" + b, "Title " + b, "Author " + (b % 10), 2000 + b % 25));
+        }
+        for (int w = 0; w < writers; w++) {
+            library.registerMember(new Member("W" + w, "Writer " + w, "writer" + w + "@example.com"));
+        }
+        library.addBook(new Book("TEMP-0", "Temporary 0", "Nobody", 2000));
+        
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger transactions = new AtomicInteger();
+        for (int w = 0; w < writers; w++) {
+            String memberId = "W" + w;
+            String first = "ISBN-" + (2 * w);
+            String second = "ISBN-" + (2 * w + 1);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < OPERATIONS_PER_THREAD / 4; i++) {
+                    library.checkoutBook(memberId, first);
+                    library.checkoutBook(memberId, second);
+                    library.returnBook(memberId, second);
+                    library.returnBook(memberId, first);
+                    transactions.addAndGet(4);
+                }
+            });
+        }
+        pool.execute(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (int i = 0; i < RACE_ROUNDS; i++) {
+                library.addBook(new Book("TEMP-" + (i + 1), "Temporary " + (i + 1), "Nobody", 2000));
+                library.removeBook(library.findBookByIsbn("TEMP-" + i));
+            }
+        });
+        
+        AtomicInteger views = new AtomicInteger();
+        AtomicInteger tornViews = new AtomicInteger();
+        Thread reporter = new Thread(() -> {
+            while (!pool.isTerminated()) {
+                try (LibraryView view = library.openView()) {
+                    for (int w = 0; w < writers; w++) {
+                        Book first = view.findBookByIsbn("ISBN-" + (2 * w));
+                        Book second = view.findBookByIsbn("ISBN-" + (2 * w + 1));
+                        if (!view.isAvailable(second) && view.isAvailable(first)) {
+                            tornViews.incrementAndGet();
+                        }
+                    }
+                    int temporary = view.getTotalBooks() - BOOKS;
+                    if (temporary < 1 || temporary > 2 || view.findBooksByAuthor("nobody").size() != temporary) {
+                        tornViews.incrementAndGet();
+                    }
+                    views.incrementAndGet();
+                }
+            }
+        }, "view-reporter");
+        long started = System.nanoTime();
+        reporter.start();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        reporter.join();
+        long elapsedNanos = System.nanoTime() - started;
+        
+        System.out.printf("View reports: %d writers, %d transactions, %.0f tx/s, %d views, torn views=%d%n",
+                writers, transactions.get(), transactions.get() * 1e9 / elapsedNanos, views.get(), tornViews.get());
+        try (LibraryView view = library.openView()) {
+            return tornViews.get() == 0
+                    && views.get() > 0
+                    && view.getTotalBooks() == BOOKS + 1
+                    && view.getAvailableCopiesCount() == library.getAvailableCopiesCount();
+        }
+    }
+}
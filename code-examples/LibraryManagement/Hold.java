@@ -0,0 +1,57 @@
+package LibraryManagement;
+
+import java.util.concurrent.CompletableFuture;
+
+// A member waiting in an ISBN's hold queue - completes with the Book once a copy is handed over
+final class Hold extends CompletableFuture<Book> {
+    private final Library library;
+    private final Member member;
+    private final String isbn;
+    
+    Hold(Library library, Member member, String isbn) {
+        this.library = library;
+        this.member = member;
+        this.isbn = isbn;
+    }
+    
+    // Getters
+    Member getMember() {
+        return member;
+    }
+    
+    String getIsbn() {
+        return isbn;
+    }
+    
+    // Anything that finishes the hold from outside (cancel, orTimeout, ...) first leaves the queue,
+    // and has no effect once the library has already taken the hold off the queue to grant it
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return library.withdrawHold(this) && super.cancel(mayInterruptIfRunning);
+    }
+    
+    @Override
+    public boolean complete(Book book) {
+        return library.withdrawHold(this) && super.complete(book);
+    }
+    
+    @Override
+    public boolean completeExceptionally(Throwable failure) {
+        return library.withdrawHold(this) && super.completeExceptionally(failure);
+    }
+    
+    // Dependent stages are plain futures, so cancelling them never touches the queue
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new CompletableFuture<>();
+    }
+    
+    // Library side - called outside the ISBN lock, after the loan is durable
+    void grant(Book book) {
+        super.complete(book);
+    }
+    
+    void fail(RuntimeException failure) {
+        super.completeExceptionally(failure);
+    }
+}
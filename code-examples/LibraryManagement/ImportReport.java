@@ -0,0 +1,25 @@
+package LibraryManagement;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+// What CatalogImporter.importFile did - outcome counts and the first rejected lines with their reasons
+public record ImportReport(Path file, CatalogImporter.Format format, long records, long imported,
+                           long rejected, List<Reject> sampleRejects, Duration parseTime, Duration installTime) {
+    
+    // Line numbers are 1-based and count the header and blank lines, so they match an editor
+    public record Reject(long line, String reason) {
+        
+        @Override
+        public String toString() {
+            return "line " + line + ": " + reason;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Imported %d of %d %s records from %s, %d rejected - parsed in %d ms, installed in %d ms",
+                imported, records, format, file.getFileName(), rejected, parseTime.toMillis(), installTime.toMillis());
+    }
+}
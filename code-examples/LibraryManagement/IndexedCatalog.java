@@ -0,0 +1,102 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// CatalogStorage.INDEXED - a concurrent hash set of books per author, per year and of available books
+// Lookups touch only the matching books; each index costs a set entry per book.
+final class IndexedCatalog implements CatalogStore {
+    private final Map<String, Set<Book>> booksByAuthor = new ConcurrentHashMap<>();  // Author key -> Books
+    private final Set<Book> availableBooks = ConcurrentHashMap.newKeySet();  // At least one copy on the shelf
+    private final Map<Integer, Set<Book>> booksByYear = new ConcurrentHashMap<>();  // compute is atomic per year
+    private final NavigableSet<Integer> publicationYears = new ConcurrentSkipListSet<>();  // Changed in those computes
+    
+    @Override
+    public void add(Book book) {
+        booksByAuthor.compute(Library.authorKey(book.getAuthor()), (key, byAuthor) -> {
+            Set<Book> books = byAuthor != null ? byAuthor : ConcurrentHashMap.newKeySet();
+            books.add(book);
+            return books;
+        });
+        booksByYear.compute(book.getYearPublished(), (year, byYear) -> {
+            Set<Book> books = byYear;
+            if (books == null) {
+                books = ConcurrentHashMap.newKeySet();
+                publicationYears.add(year);
+            }
+            books.add(book);
+            return books;
+        });
+        availabilityChanged(book);
+    }
+    
+    @Override
+    public void remove(Book book) {
+        availableBooks.remove(book);
+        booksByAuthor.computeIfPresent(Library.authorKey(book.getAuthor()), (key, byAuthor) -> {
+            byAuthor.remove(book);
+            return byAuthor.isEmpty() ? null : byAuthor;
+        });
+        booksByYear.computeIfPresent(book.getYearPublished(), (year, byYear) -> {
+            byYear.remove(book);
+            if (!byYear.isEmpty()) {
+                return byYear;
+            }
+            publicationYears.remove(year);
+            return null;
+        });
+    }
+    
+    @Override
+    public void availabilityChanged(Book book) {
+        if (book.isAvailable()) {
+            availableBooks.add(book);
+        } else {
+            availableBooks.remove(book);
+        }
+    }
+    
+    @Override
+    public List<Book> findByAuthor(String authorKey) {
+        Set<Book> byAuthor = booksByAuthor.get(authorKey);
+        return byAuthor == null ? new ArrayList<>() : new ArrayList<>(byAuthor);
+    }
+    
+    // O(log n) to find the first year, then O(k) for the matches
+    @Override
+    public List<Book> findPublishedBetween(int fromYear, int toYear) {
+        List<Book> result = new ArrayList<>();
+        for (Integer year : publicationYears.subSet(fromYear, true, toYear, true)) {
+            Set<Book> books = booksByYear.get(year);
+            if (books != null) {  // Null once emptied since the scan passed it
+                result.addAll(books);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public List<Book> findAvailable() {
+        return new ArrayList<>(availableBooks);
+    }
+    
+    @Override
+    public int availableCount() {
+        return availableBooks.size();
+    }
+    
+    // Walks distinct years, not books
+    @Override
+    public SortedMap<Integer, Integer> countsByDecade() {
+        SortedMap<Integer, Integer> counts = new TreeMap<>();
+        booksByYear.forEach((year, books) -> counts.merge(Library.decadeOf(year), books.size(), Integer::sum));
+        return counts;
+    }
+}
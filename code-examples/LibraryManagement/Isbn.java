@@ -0,0 +1,134 @@
+package LibraryManagement;
+
+// Isbn - Parsing and normalization of ISBNs
+// An ISBN is kept as its ISBN-13 number in a long: hyphens and spaces are dropped, an ISBN-10 is
+// converted (978 prefix, recomputed check digit) and the check digit is verified, so
+// "0-13-235088-2", "978-0-13-235088-4" and "9780132350884" all become 9780132350884L.
+// Identifiers that are not written like an ISBN at all - anything with letters other than a final
+// X, such as an in-house "RACE-1", or a digit count other than 10 or 13, such as "123" - have no
+// number and are kept and compared as plain strings.
+// Ten or thirteen digits with a wrong check digit are a mistyped ISBN: parse rejects them, and
+// Library.addBook and CatalogImporter go through parse. A Book keeps whatever it was given and only
+// keys on the number, and lookups use keyOf, where a mistyped ISBN simply matches nothing.
+public final class Isbn {
+    public static final long NONE = -1;      // Not an ISBN
+    private static final long MALFORMED = -2;   // Ten or thirteen digits, but the check digit or prefix is wrong
+    private static final long ISBN10_PREFIX = 978_000_000_000L;
+    
+    private Isbn() {
+    }
+    
+    // The ISBN-13 number, or NONE for an identifier that is not written like an ISBN
+    // Throws IllegalArgumentException for a malformed ISBN, so a typo never becomes a second catalog entry
+    public static long parse(String text) {
+        long key = scan(text);
+        if (key == MALFORMED) {
+            throw new IllegalArgumentException("Invalid ISBN: " + text);
+        }
+        return key;
+    }
+    
+    // Like parse, but NONE instead of an exception - for lookups, where a malformed ISBN just matches nothing
+    public static long keyOf(String text) {
+        long key = scan(text);
+        return key == MALFORMED ? NONE : key;
+    }
+    
+    // The 13 digits without hyphens
+    public static String toString(long isbn13) {
+        if (isbn13 < 0 || isbn13 >= 10_000_000_000_000L) {
+            throw new IllegalArgumentException("Not an ISBN-13: " + isbn13);
+        }
+        char[] digits = new char[13];  // Every Book constructor comes through here - no String.format
+        long rest = isbn13;
+        for (int i = 12; i >= 0; i--) {
+            digits[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return new String(digits);
+    }
+    
+    // Canonical spelling: the 13 digits for an ISBN, any other identifier unchanged
+    public static String normalize(String text) {
+        long key = keyOf(text);
+        return key == NONE ? text : toString(key);
+    }
+    
+    // Completes the first 12 digits of an ISBN-13 with their check digit
+    public static long withCheckDigit(long first12) {
+        if (first12 < 0 || first12 >= 1_000_000_000_000L) {
+            throw new IllegalArgumentException("Expected 12 digits: " + first12);
+        }
+        return first12 * 10 + checkDigit13(first12);
+    }
+    
+    // The same hash for every spelling of an ISBN - Book.hashCode and the library's ISBN locks agree on it
+    static int hash(String text) {
+        return hash(keyOf(text), text);
+    }
+    
+    static int hash(long key, String text) {
+        if (key != NONE) {
+            return Long.hashCode(key * 0x9E3779B97F4A7C15L);  // Neighbouring ISBNs differ in few bits - spread them
+        }
+        return text != null ? text.hashCode() : 0;
+    }
+    
+    // Helper methods
+    // One pass, no allocation: digits are accumulated with the weights of both check digit schemes
+    private static long scan(String text) {
+        if (text == null) {
+            return NONE;
+        }
+        long value = 0;
+        int digits = 0;
+        int sum10 = 0;          // ISBN-10: weights 10 down to 1, total divisible by 11
+        int sum13 = 0;          // ISBN-13: weights 1, 3, 1, 3, ..., total divisible by 10
+        boolean checkX = false; // ISBN-10 check digit 10, written X
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (checkX || digits == 13) {
+                    return NONE;  // A digit after the X, or more than 13 - not written like an ISBN
+                }
+                int digit = c - '0';
+                value = value * 10 + digit;
+                sum10 += (10 - digits) * digit;
+                sum13 += (digits % 2 == 0 ? 1 : 3) * digit;
+                digits++;
+            } else if (c == 'X' || c == 'x') {
+                if (digits != 9 || checkX) {
+                    return NONE;
+                }
+                checkX = true;
+                sum10 += 10;
+                digits++;
+            } else if (c != '-' && c != ' ') {
+                return NONE;
+            }
+        }
+        if (digits == 10) {
+            if (sum10 % 11 != 0) {
+                return MALFORMED;
+            }
+            long first9 = checkX ? value : value / 10;
+            return withCheckDigit(ISBN10_PREFIX + first9);
+        }
+        if (digits == 13) {
+            long prefix = value / 10_000_000_000L;
+            return sum13 % 10 == 0 && (prefix == 978 || prefix == 979) ? value : MALFORMED;
+        }
+        return NONE;  // Too few digits for an ISBN - an ordinary ID such as "123"
+    }
+    
+    private static int checkDigit13(long first12) {
+        int sum = 0;
+        long rest = first12;
+        for (int position = 11; position >= 0; position--) {  // Rightmost of the 12 digits has weight 3
+            int digit = (int) (rest % 10);
+            sum += (position % 2 == 0 ? 1 : 3) * digit;
+            rest /= 10;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,168 @@
+package LibraryManagement;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+// ISBN -> Book lookup without string hashing
+// ISBNs are stored as their ISBN-13 numbers (see Isbn) in an open-addressing table: parallel long
+// keys and Book values, linear probing, and backward-shift deletion so no tombstones pile up. A lookup
+// parses its argument once and compares a few longs - no String.hashCode, no equals, and no node object
+// per book. Identifiers that are not ISBNs go to an ordinary map beside the table.
+//
+// Lookups do not lock: they probe under an optimistic StampedLock read and only retry under the read
+// lock if a write got in between. Adds and removes take the write lock; they are rare next to lookups.
+final class IsbnIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = Isbn.NONE;  // ISBN-13 numbers are never negative
+    
+    // Replaced as a whole on resize, so a reader always probes keys and values of the same size
+    private static final class Table {
+        final long[] keys;
+        final Book[] values;
+        final int mask;
+        
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Book[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+    
+    private final StampedLock lock = new StampedLock();
+    private final Map<String, Book> others = new ConcurrentHashMap<>();
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile int isbnCount;  // Written under the write lock
+    
+    Book get(String isbn) {
+        long key = Isbn.keyOf(isbn);
+        if (key == Isbn.NONE) {
+            return isbn == null ? null : others.get(isbn);
+        }
+        long stamp = lock.tryOptimisticRead();
+        Book book = probe(table, key);
+        if (lock.validate(stamp)) {
+            return book;
+        }
+        stamp = lock.readLock();
+        try {
+            return probe(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    // Returns the book already stored under this ISBN, or null after adding it
+    Book putIfAbsent(Book book) {
+        long key = book.getIsbnKey();
+        if (key == Isbn.NONE) {
+            return others.putIfAbsent(book.getIsbn(), book);
+        }
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = slotOf(current, key);
+            if (current.keys[slot] == key) {
+                return current.values[slot];
+            }
+            if ((isbnCount + 1) * 2 > current.keys.length) {  // Load factor 1/2 keeps probe runs short
+                current = resize(current);
+                slot = slotOf(current, key);
+            }
+            current.values[slot] = book;
+            current.keys[slot] = key;
+            isbnCount++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    // Returns the removed book, or null if the ISBN was not present
+    Book remove(Book book) {
+        long key = book.getIsbnKey();
+        if (key == Isbn.NONE) {
+            return others.remove(book.getIsbn());
+        }
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int gap = slotOf(current, key);
+            if (current.keys[gap] != key) {
+                return null;
+            }
+            Book removed = current.values[gap];
+            // Pull later entries of the probe run back into the gap, as long as that stays on their path
+            int slot = gap;
+            while (true) {
+                slot = (slot + 1) & current.mask;
+                long moving = current.keys[slot];
+                if (moving == EMPTY) {
+                    break;
+                }
+                int home = home(moving, current.mask);
+                if (((slot - home) & current.mask) >= ((slot - gap) & current.mask)) {
+                    current.keys[gap] = moving;
+                    current.values[gap] = current.values[slot];
+                    gap = slot;
+                }
+            }
+            current.keys[gap] = EMPTY;
+            current.values[gap] = null;
+            isbnCount--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    int size() {
+        return isbnCount + others.size();
+    }
+    
+    // Helper methods
+    // May run concurrently with a write; the caller validates its stamp before trusting the result
+    private static Book probe(Table current, long key) {
+        int slot = home(key, current.mask);
+        for (int probes = 0; probes <= current.mask; probes++) {
+            long stored = current.keys[slot];
+            if (stored == key) {
+                return current.values[slot];
+            }
+            if (stored == EMPTY) {
+                return null;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+        return null;
+    }
+    
+    // The key's slot, or the empty slot where it would go
+    private static int slotOf(Table current, long key) {
+        int slot = home(key, current.mask);
+        while (current.keys[slot] != key && current.keys[slot] != EMPTY) {
+            slot = (slot + 1) & current.mask;
+        }
+        return slot;
+    }
+    
+    private static int home(long key, int mask) {
+        return Isbn.hash(key, null) & mask;
+    }
+    
+    private Table resize(Table current) {
+        Table grown = new Table(current.keys.length * 2);
+        for (int i = 0; i < current.keys.length; i++) {
+            long key = current.keys[i];
+            if (key != EMPTY) {
+                int slot = slotOf(grown, key);
+                grown.keys[slot] = key;
+                grown.values[slot] = current.values[i];
+            }
+        }
+        table = grown;
+        return grown;
+    }
+}
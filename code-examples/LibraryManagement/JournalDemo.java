@@ -0,0 +1,120 @@
+package LibraryManagement;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+// Demo for LibraryJournal - run it twice and the second run picks up where the first stopped
+//   java LibraryManagement.JournalDemo [directory]
+//   java LibraryManagement.JournalDemo --recovery=2000000   -> times recovery of that many records
+public class JournalDemo {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].startsWith("--recovery=")) {
+            measureRecovery(Integer.parseInt(args[0].substring("--recovery=".length())));
+            return;
+        }
+        Path directory = Path.of(args.length > 0 ? args[0] : "library-journal");
+        
+        try (LibraryJournal journal = LibraryJournal.open(directory)) {
+            Library library = journal.recover("City Central Library");
+            System.out.println(journal.getLastRecovery());
+            System.out.println(library);
+            
+            if (library.findBookByIsbn("978-0134685991") == null) {
+                System.out.println("\n--- First run: adding books and members ---");
+                library.addBook(new Book("978-0134685991", "Effective Java", "Joshua Bloch", 2018));
+                library.addBook(new Book("978-0132350884", "Clean Code", "Robert Martin", 2008));
+                library.registerMember(new Member("M001", "Alice Johnson", "alice@example.com"));
+                library.checkoutBook("M001", "978-0134685991");
+            } else {
+                System.out.println("\n--- Later run: loans survived the restart ---");
+                System.out.println(library.findMemberById("M001"));
+                journal.checkpoint();  // Compact now rather than waiting for the automatic checkpoint
+            }
+            System.out.println("Available Books: " + library.getAvailableBooksCount());
+        }
+        replayMemberUpdates();
+    }
+    
+    // A borrow limit raised after registration is journaled, so the loans it allowed replay cleanly -
+    // both in recovery and in the checkpoint, which replays onto a fresh library
+    private static void replayMemberUpdates() throws IOException {
+        Path directory = Files.createTempDirectory("library-journal-members");
+        try {
+            try (LibraryJournal journal = LibraryJournal.open(directory)) {
+                Library library = journal.recover("Member Updates");
+                Member member = new Member("M1", "Raised Limit", "raised@example.com");
+                library.registerMember(member);
+                member.setMaxBorrowLimit(10);
+                member.setEmail("raised.limit@example.com");
+                for (int b = 0; b < 7; b++) {
+                    library.addBook(new Book("B" + b, "Title " + b, "Author", 2000));
+                    library.checkoutBook("M1", "B" + b);
+                }
+                journal.checkpoint();  // The eighth loan replays on top of the checkpoint's copy of the member
+                library.addBook(new Book("B7", "Title 7", "Author", 2000));
+                library.checkoutBook("M1", "B7");
+            }
+            try (LibraryJournal journal = LibraryJournal.open(directory)) {
+                Library recovered = journal.recover("Member Updates");
+                System.out.println("\n--- Member changes replay ---");
+                System.out.println(recovered.findMemberById("M1"));
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+    
+    // Journals the given number of checkouts and returns without checkpoints, then recovers them
+    private static void measureRecovery(int records) throws IOException {
+        Path directory = Files.createTempDirectory("library-journal-recovery");
+        System.out.println("Writing " + records + " records to " + directory);
+        try (LibraryJournal journal = LibraryJournal.open(directory, false)) {
+            journal.setCheckpointInterval(0);
+            Library library = journal.recover("Recovery Library");
+            for (int b = 0; b < 10_000; b++) {
+                library.addBook(new Book("ISBN-" + b, "Title " + b, "Author " + (b % 100), 2000, 2));
+            }
+            for (int m = 0; m < 1_000; m++) {
+                library.registerMember(new Member("M" + m, "Member " + m, "member" + m + "@example.com"));
+            }
+            SplittableRandom random = new SplittableRandom(42);
+            for (int written = 0; written < records; ) {
+                String memberId = "M" + random.nextInt(1_000);
+                String isbn = "ISBN-" + random.nextInt(10_000);
+                try {
+                    library.checkoutBook(memberId, isbn);
+                    library.returnBook(memberId, isbn);
+                    written += 2;
+                } catch (IllegalStateException taken) {
+                    // No copy left or limit reached - try another pair
+                }
+            }
+        }
+        try {
+            for (int run = 1; run <= 3; run++) {  // The first run also pays for class loading and the JIT
+                try (LibraryJournal journal = LibraryJournal.open(directory, false)) {
+                    journal.setCheckpointInterval(0);
+                    journal.recover("Recovery Library");
+                    RecoveryReport report = journal.getLastRecovery();
+                    System.out.printf("Run %d: %s (%.2f us/record)%n", run, report,
+                            report.elapsed().toNanos() / 1e3 / Math.max(1, report.recordsReplayed()));
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package LibraryManagement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// One entry in the LibraryJournal - each record knows how to encode itself and replay itself
+// Replay is exact, not forgiving: the journal orders the changes to each book and to each member the
+// way they were made, and a checkpoint snapshot holds exactly the records up to its sequence, so every
+// later record applies cleanly on top of it. One that does not means the journal is damaged, and
+// applyTo throws the library's own exception rather than skipping it.
+sealed interface JournalRecord {
+    byte BOOK_ADDED = 1;
+    byte BOOK_REMOVED = 2;
+    byte MEMBER_REGISTERED = 3;
+    byte BOOK_RETURNED = 5;
+    byte COPIES_SET = 6;
+    byte BOOK_CHECKED_OUT = 7;           // Carries the due date; 4 was the form without one, no longer read
+    byte MEMBER_UPDATED = 8;
+    
+    record BookAdded(String isbn, String title, String author, int yearPublished, int totalCopies)
+            implements JournalRecord {
+        @Override
+        public void applyTo(Library library) {
+            library.addBook(new Book(isbn, title, author, yearPublished, totalCopies));
+        }
+    }
+    
+    // Holds the new absolute copy count rather than a delta
+    record CopiesSet(String isbn, int totalCopies) implements JournalRecord {
+        @Override
+        public void applyTo(Library library) {
+            Book book = library.findBookByIsbn(isbn);
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+            if (book.getTotalCopies() < totalCopies) {
+                library.addCopies(isbn, totalCopies - book.getTotalCopies());
+            } else if (book.getTotalCopies() > totalCopies) {
+                library.removeCopies(isbn, book.getTotalCopies() - totalCopies);
+            }
+        }
+    }
+    
+    record BookRemoved(String isbn) implements JournalRecord {
+        @Override
+        public void applyTo(Library library) {
+            Book book = library.findBookByIsbn(isbn);
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+            library.removeBook(book);
+        }
+    }
+    
+    record MemberRegistered(String memberId, String name, String email, int maxBorrowLimit)
+            implements JournalRecord {
+        @Override
+        public void applyTo(Library library) {
+            Member member = new Member(memberId, name, email);
+            member.setMaxBorrowLimit(maxBorrowLimit);
+            library.registerMember(member);
+        }
+    }
+    
+    // The member's email and borrow limit after a change, so replay checks later loans against the
+    // limit that was in force when they were made
+    record MemberUpdated(String memberId, String email, int maxBorrowLimit) implements JournalRecord {
+        @Override
+        public void applyTo(Library library) {
+            Member member = library.findMemberById(memberId);
+            if (member == null) {
+                throw new IllegalArgumentException("Member not found");
+            }
+            library.updateMember(member, () -> member.restore(email, maxBorrowLimit));
+        }
+    }
+    
+    record BookCheckedOut(String memberId, String isbn, long dueAtMillis) implements JournalRecord {
+        @Override
+        public void applyTo(Library library) {
+            library.checkoutBook(memberId, isbn, dueAtMillis);
+        }
+    }
+    
+    record BookReturned(String memberId, String isbn) implements JournalRecord {
+        @Override
+        public void applyTo(Library library) {
+            library.returnBook(memberId, isbn);
+        }
+    }
+    
+    void applyTo(Library library);
+    
+    // Encoding: sequence (long), type (byte), then the record's fields
+    default byte[] encode(long sequence) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(sequence);
+            if (this instanceof BookAdded added) {
+                out.writeByte(BOOK_ADDED);
+                writeString(out, added.isbn());
+                writeString(out, added.title());
+                writeString(out, added.author());
+                out.writeInt(added.yearPublished());
+                out.writeInt(added.totalCopies());
+            } else if (this instanceof CopiesSet copiesSet) {
+                out.writeByte(COPIES_SET);
+                writeString(out, copiesSet.isbn());
+                out.writeInt(copiesSet.totalCopies());
+            } else if (this instanceof BookRemoved removed) {
+                out.writeByte(BOOK_REMOVED);
+                writeString(out, removed.isbn());
+            } else if (this instanceof MemberRegistered registered) {
+                out.writeByte(MEMBER_REGISTERED);
+                writeString(out, registered.memberId());
+                writeString(out, registered.name());
+                writeString(out, registered.email());
+                out.writeInt(registered.maxBorrowLimit());
+            } else if (this instanceof MemberUpdated updated) {
+                out.writeByte(MEMBER_UPDATED);
+                writeString(out, updated.memberId());
+                writeString(out, updated.email());
+                out.writeInt(updated.maxBorrowLimit());
+            } else if (this instanceof BookCheckedOut checkedOut) {
+                out.writeByte(BOOK_CHECKED_OUT);
+                writeString(out, checkedOut.memberId());
+                writeString(out, checkedOut.isbn());
+                out.writeLong(checkedOut.dueAtMillis());
+            } else if (this instanceof BookReturned returned) {
+                out.writeByte(BOOK_RETURNED);
+                writeString(out, returned.memberId());
+                writeString(out, returned.isbn());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // Cannot happen for an in-memory stream
+        }
+    }
+    
+    // Reads the record that follows the sequence number in payload
+    static JournalRecord decode(ByteBuffer payload) {
+        byte type = payload.get();
+        return switch (type) {
+            case BOOK_ADDED -> new BookAdded(readString(payload), readString(payload),
+                    readString(payload), payload.getInt(), payload.getInt());
+            case COPIES_SET -> new CopiesSet(readString(payload), payload.getInt());
+            case BOOK_REMOVED -> new BookRemoved(readString(payload));
+            case MEMBER_REGISTERED -> new MemberRegistered(readString(payload), readString(payload),
+                    readString(payload), payload.getInt());
+            case MEMBER_UPDATED -> new MemberUpdated(readString(payload), readString(payload), payload.getInt());
+            case BOOK_CHECKED_OUT -> new BookCheckedOut(readString(payload), readString(payload),
+                    payload.getLong());
+            case BOOK_RETURNED -> new BookReturned(readString(payload), readString(payload));
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        };
+    }
+    
+    // Strings are a length (-1 for null) followed by UTF-8 bytes
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -1,21 +1,107 @@
 package LibraryManagement;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 // Library class - Manages books and members
+// Thread-safe: lookups are lock-free, and changes to one ISBN are serialized by a striped lock
 public class Library {
+    private static final long OVERDUE_TICK_MILLIS = 1_000;           // Overdue loans surface within a second
+    private static final Duration DEFAULT_LOAN_PERIOD = Duration.ofDays(14);
+    private static final int CHANGE_EVENT_CAPACITY = 1 << 15;       // Events a subscriber may lag behind
+    
     // Encapsulated fields
-    private String name;
-    private List<Book> books;
-    private List<Member> members;
+    private final String name;
+    private final IsbnIndex booksByIsbn;                // ISBN -> Book, keyed by the ISBN-13 number
+    private final Map<String, Member> membersById;      // Member ID -> Member
+    private final NavigableMap<String, Book> booksInIsbnOrder;     // Canonical ISBN -> Book, for listing and paging
+    private final NavigableMap<String, Member> membersInIdOrder;   // Sorted view for listing and paging
+    private final CatalogStore catalog;                 // Author, year and availability indexes, see CatalogStorage
+    private final LongAdder totalCopies;                // Physical copies across all books
+    private final LongAdder availableCopies;            // Physical copies on the shelf
+    private final TitleIndex titleIndex;                // Title token -> Books, for searchTitles
+    private final AvailabilityListener availabilityTracker;
+    private final LockStripes isbnLocks;                // Serializes add/remove/checkout/return per ISBN
+    private final Map<String, Deque<Hold>> holdsByIsbn; // Canonical ISBN -> members waiting, oldest first
+    // Read-only listings are shared between callers until the next add/remove/register
+    private final ListingCache<Book> bookListing;
+    private final ListingCache<Member> memberListing;
+    private volatile LibraryJournal journal;            // Optional durable log of every change
+    private final Clock clock;                          // Source of due dates and overdue checks
+    private final OverdueWheel[] overdueLoans;          // Due dates of open loans not yet reported, per ISBN stripe
+    private volatile Duration loanPeriod;
+    private volatile ChangeEventRing changeEvents;      // Created by the first subscribe
+    private final AtomicInteger subscriberCount;        // Nothing is published while it is zero
+    private final LibraryStatistics statistics;         // Live aggregates for reporting
+    private final VersionClock versionClock;            // Numbers every state of every book's copies, for views
     
-    // Constructor
+    // Constructors
     public Library(String name) {
+        this(name, Clock.systemUTC());
+    }
+    
+    public Library(String name, Clock clock) {
+        this(name, clock, CatalogStorage.INDEXED);
+    }
+    
+    public Library(String name, CatalogStorage storage) {
+        this(name, Clock.systemUTC(), storage);
+    }
+    
+    public Library(String name, Clock clock, CatalogStorage storage) {
         this.name = name;
-        this.books = new ArrayList<>();
-        this.members = new ArrayList<>();
+        this.clock = clock;
+        this.loanPeriod = DEFAULT_LOAN_PERIOD;
+        this.subscriberCount = new AtomicInteger();
+        this.statistics = new LibraryStatistics(clock);
+        this.versionClock = new VersionClock();
+        this.booksByIsbn = new IsbnIndex();
+        this.membersById = new ConcurrentHashMap<>();
+        this.booksInIsbnOrder = new ConcurrentSkipListMap<>();
+        this.membersInIdOrder = new ConcurrentSkipListMap<>();
+        this.bookListing = new ListingCache<>(booksInIsbnOrder);
+        this.memberListing = new ListingCache<>(membersInIdOrder);
+        this.catalog = CatalogStore.create(storage);
+        this.totalCopies = new LongAdder();
+        this.availableCopies = new LongAdder();
+        this.titleIndex = new TitleIndex();
+        this.isbnLocks = LockStripes.forAvailableProcessors();
+        this.overdueLoans = new OverdueWheel[isbnLocks.size()];  // Scheduled and cancelled under the stripe's lock
+        for (int stripe = 0; stripe < overdueLoans.length; stripe++) {
+            overdueLoans[stripe] = new OverdueWheel(OVERDUE_TICK_MILLIS, clock.millis());
+        }
+        this.holdsByIsbn = new ConcurrentHashMap<>();  // Queues are only touched under their ISBN lock
+        this.availabilityTracker = (book, availableDelta, totalDelta) -> {
+            availableCopies.add(availableDelta);
+            totalCopies.add(totalDelta);
+            statistics.copiesChanged(book, availableDelta, totalDelta);
+            catalog.availabilityChanged(book);
+        };
     }
     
     // Getters
@@ -23,45 +109,204 @@ public class Library {
         return name;
     }
     
+    public Duration getLoanPeriod() {
+        return loanPeriod;
+    }
+    
+    // Setters with validation
+    // Applies to loans opened from now on; open loans keep the due date they were given
+    public void setLoanPeriod(Duration loanPeriod) {
+        if (loanPeriod == null || loanPeriod.isNegative() || loanPeriod.isZero()) {
+            throw new IllegalArgumentException("Loan period must be positive");
+        }
+        this.loanPeriod = loanPeriod;
+    }
+    
+    // Unmodifiable snapshots in ISBN / member ID order - copied once per change, not once per call
     public List<Book> getBooks() {
-        return new ArrayList<>(books);  // Return copy for encapsulation
+        return bookListing.snapshot();
     }
     
     public List<Member> getMembers() {
-        return new ArrayList<>(members);  // Return copy for encapsulation
+        return memberListing.snapshot();
+    }
+    
+    // Cursor paging - only the requested page is materialized
+    public Page<Book> getBooksPage(String afterIsbn, int pageSize) {
+        return page(booksInIsbnOrder, afterIsbn == null ? null : Isbn.normalize(afterIsbn), pageSize);
+    }
+    
+    public Page<Member> getMembersPage(String afterMemberId, int pageSize) {
+        return page(membersInIdOrder, afterMemberId, pageSize);
     }
     
     // Book management methods
     public void addBook(Book book) {
-        if (book == null) {
-            throw new IllegalArgumentException("Book cannot be null");
+        requireIsbn(book);
+        long sequence;
+        ReentrantLock lock = isbnLock(book.getIsbn());
+        lock.lock();
+        try {
+            sequence = install(book);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+    }
+    
+    // Bulk load - one journal wait for the whole batch instead of one per book
+    // Returns the books that were skipped because their ISBN is already in the catalog
+    public List<Book> addBooks(Collection<Book> books) {
+        for (Book book : books) {
+            requireIsbn(book);
+        }
+        List<Book> duplicates = new ArrayList<>();
+        long lastSequence = 0;
+        for (Book book : books) {  // In the caller's order - a sorted file then appends to the ordered indexes
+            ReentrantLock lock = isbnLock(book.getIsbn());
+            lock.lock();
+            try {
+                if (booksByIsbn.get(book.getIsbn()) != null) {
+                    duplicates.add(book);
+                } else {
+                    lastSequence = Math.max(lastSequence, install(book));
+                }
+            } finally {
+                lock.unlock();
+            }
         }
-        if (books.contains(book)) {
+        awaitDurable(lastSequence);
+        return duplicates;
+    }
+    
+    // Adds the book to every index under its ISBN lock; returns the journal sequence
+    private long install(Book book) {
+        if (booksByIsbn.putIfAbsent(book) != null) {
             throw new IllegalStateException("Book already exists in library");
         }
-        books.add(book);
+        booksInIsbnOrder.put(book.getCanonicalIsbn(), book);
+        bookListing.invalidate();
+        titleIndex.add(book);
+        synchronized (book) {  // Book changes state under its own lock, so no update slips between
+            catalog.add(book);
+            book.setAvailabilityListener(availabilityTracker);
+            book.attachVersions(versionClock);  // After the indexes, so a view that sees it can also find it
+            totalCopies.add(book.getTotalCopies());
+            availableCopies.add(book.getAvailableCopies());
+            statistics.bookAdded(book);
+        }
+        long sequence = journal(new JournalRecord.BookAdded(book.getIsbn(), book.getTitle(),
+                book.getAuthor(), book.getYearPublished(), book.getTotalCopies()));
+        publish(ChangeEvent.Type.BOOK_ADDED, null, book.getIsbn(), book.getTotalCopies());
+        return sequence;
     }
     
     public void removeBook(Book book) {
-        if (!books.contains(book)) {
+        if (book == null || book.getIsbn() == null) {
             throw new IllegalStateException("Book not found in library");
         }
-        if (!book.isAvailable()) {
-            throw new IllegalStateException("Cannot remove book that is checked out");
+        long sequence;
+        Deque<Hold> holds;
+        ReentrantLock lock = isbnLock(book.getIsbn());
+        lock.lock();
+        try {
+            Book removed = booksByIsbn.get(book.getIsbn());
+            if (removed == null) {
+                throw new IllegalStateException("Book not found in library");
+            }
+            synchronized (removed) {  // Every copy must be on the shelf
+                if (removed.getAvailableCopies() != removed.getTotalCopies()) {
+                    throw new IllegalStateException("Cannot remove book that is checked out");
+                }
+                removed.setAvailabilityListener(null);
+                versionClock.retire(removed, removed.detachVersions());  // Views opened earlier still list it
+                catalog.remove(removed);
+                totalCopies.add(-removed.getTotalCopies());
+                availableCopies.add(-removed.getAvailableCopies());
+                statistics.bookRemoved(removed);
+            }
+            booksByIsbn.remove(removed);
+            booksInIsbnOrder.remove(removed.getCanonicalIsbn());
+            bookListing.invalidate();
+            titleIndex.remove(removed);
+            holds = holdsByIsbn.remove(removed.getCanonicalIsbn());
+            sequence = journal(new JournalRecord.BookRemoved(removed.getIsbn()));
+            publish(ChangeEvent.Type.BOOK_REMOVED, null, removed.getIsbn(), 0);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+        if (holds != null) {
+            for (Hold hold : holds) {
+                hold.fail(new IllegalStateException("Book removed from library"));
+            }
+        }
+    }
+    
+    // Holdings - more copies of a title already in the catalog
+    public void addCopies(String isbn, int count) {
+        changeCopies(isbn, book -> book.addCopies(count));
+    }
+    
+    public void removeCopies(String isbn, int count) {
+        changeCopies(isbn, book -> book.removeCopies(count));
+    }
+    
+    private void changeCopies(String isbn, Consumer<Book> change) {
+        if (isbn == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        long sequence;
+        List<Runnable> handOffs = new ArrayList<>();
+        ReentrantLock lock = isbnLock(isbn);
+        lock.lock();
+        try {
+            Book book = booksByIsbn.get(isbn);
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+            change.accept(book);
+            sequence = journal(new JournalRecord.CopiesSet(book.getIsbn(), book.getTotalCopies()));
+            publish(ChangeEvent.Type.COPIES_CHANGED, null, book.getIsbn(), book.getTotalCopies());
+            sequence = Math.max(sequence, grantHolds(book, handOffs));  // New copies go to the queue first
+        } finally {
+            lock.unlock();
         }
-        books.remove(book);
+        awaitDurable(sequence);
+        handOffs.forEach(Runnable::run);
+    }
+    
+    public Book findBookByIsbn(String isbn) {
+        return isbn == null ? null : booksByIsbn.get(isbn);
     }
     
     public List<Book> findBooksByAuthor(String author) {
-        return books.stream()
-                .filter(book -> book.getAuthor().equalsIgnoreCase(author))
-                .collect(Collectors.toList());
+        if (author == null) {
+            return new ArrayList<>();
+        }
+        return catalog.findByAuthor(authorKey(author));
+    }
+    
+    // Type-ahead title search - each query word matches as a prefix, best matches first
+    public List<Book> searchTitles(String query, int limit) {
+        return titleIndex.search(query, limit);
+    }
+    
+    // Inclusive year range
+    public List<Book> findBooksPublishedBetween(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("fromYear must not be after toYear");
+        }
+        return catalog.findPublishedBetween(fromYear, toYear);
+    }
+    
+    public List<Book> findBooksPublishedInDecade(int decade) {
+        int start = decadeOf(decade);
+        return findBooksPublishedBetween(start, start + 9);
     }
     
     public List<Book> findAvailableBooks() {
-        return books.stream()
-                .filter(Book::isAvailable)
-                .collect(Collectors.toList());
+        return catalog.findAvailable();
     }
     
     // Member management methods
@@ -69,36 +314,74 @@ public class Library {
         if (member == null) {
             throw new IllegalArgumentException("Member cannot be null");
         }
-        if (members.contains(member)) {
-            throw new IllegalStateException("Member already registered");
+        if (member.getMemberId() == null) {
+            throw new IllegalArgumentException("Member ID cannot be null");
+        }
+        long sequence;
+        synchronized (member) {  // A checkout by the new member cannot reach the journal before this record
+            if (member.registeredWith() != null && member.registeredWith() != this) {
+                throw new IllegalStateException("Member is registered with another library");
+            }
+            if (membersById.putIfAbsent(member.getMemberId(), member) != null) {
+                throw new IllegalStateException("Member already registered");
+            }
+            member.registerWith(this);
+            membersInIdOrder.put(member.getMemberId(), member);
+            memberListing.invalidate();
+            sequence = journal(new JournalRecord.MemberRegistered(member.getMemberId(), member.getName(),
+                    member.getEmail(), member.getMaxBorrowLimit()));
+            publish(ChangeEvent.Type.MEMBER_REGISTERED, member.getMemberId(), null, 0);
+        }
+        awaitDurable(sequence);
+    }
+    
+    // Member setters of a registered member land here - the change and its record happen under the
+    // member's lock, so the journal orders them with the member's loans
+    void updateMember(Member member, Runnable change) {
+        long sequence;
+        synchronized (member) {
+            change.run();
+            sequence = journal(new JournalRecord.MemberUpdated(member.getMemberId(), member.getEmail(),
+                    member.getMaxBorrowLimit()));
+            publish(ChangeEvent.Type.MEMBER_UPDATED, member.getMemberId(), null, 0);
         }
-        members.add(member);
+        awaitDurable(sequence);
     }
     
     public Member findMemberById(String memberId) {
-        return members.stream()
-                .filter(m -> m.getMemberId().equals(memberId))
-                .findFirst()
-                .orElse(null);
+        return memberId == null ? null : membersById.get(memberId);
     }
     
     // Transaction methods
     public void checkoutBook(String memberId, String isbn) {
+        checkoutBook(memberId, isbn, dueDateFromNow());
+    }
+    
+    // Journal replay restores the due date the loan was originally given
+    void checkoutBook(String memberId, String isbn, long dueAtMillis) {
         Member member = findMemberById(memberId);
         if (member == null) {
             throw new IllegalArgumentException("Member not found");
         }
-        
-        Book book = books.stream()
-                .filter(b -> b.getIsbn().equals(isbn))
-                .findFirst()
-                .orElse(null);
-        
-        if (book == null) {
+        if (isbn == null) {
             throw new IllegalArgumentException("Book not found");
         }
         
-        member.borrowBook(book);
+        long sequence;
+        ReentrantLock lock = isbnLock(isbn);
+        lock.lock();
+        try {
+            Book book = booksByIsbn.get(isbn);
+            
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+            
+            sequence = lend(member, book, dueAtMillis);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
     }
     
     public void returnBook(String memberId, String isbn) {
@@ -106,36 +389,541 @@ public class Library {
         if (member == null) {
             throw new IllegalArgumentException("Member not found");
         }
+        if (isbn == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
         
-        Book book = books.stream()
-                .filter(b -> b.getIsbn().equals(isbn))
-                .findFirst()
-                .orElse(null);
-        
-        if (book == null) {
+        long sequence;
+        List<Runnable> handOffs = new ArrayList<>();
+        ReentrantLock lock = isbnLock(isbn);
+        lock.lock();
+        try {
+            Book book = booksByIsbn.get(isbn);
+            
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+            
+            sequence = endLoan(member, book);
+            sequence = Math.max(sequence, grantHolds(book, handOffs));  // The copy goes straight to the next hold
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+        handOffs.forEach(Runnable::run);
+    }
+    
+    // Hold methods
+    // Checks the book out right away when a copy is free and nobody is waiting; otherwise joins the
+    // ISBN's FIFO queue, and the future completes with the Book once a returned copy is lent to this member
+    public CompletableFuture<Book> placeHold(String memberId, String isbn) {
+        Member member = findMemberById(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        if (isbn == null) {
             throw new IllegalArgumentException("Book not found");
         }
         
-        member.returnBook(book);
+        Book book;
+        long sequence;
+        ReentrantLock lock = isbnLock(isbn);
+        lock.lock();
+        try {
+            book = booksByIsbn.get(isbn);
+            
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+            
+            Deque<Hold> queue = holdsByIsbn.get(book.getCanonicalIsbn());
+            if (queue == null && book.isAvailable()) {
+                sequence = lend(member, book, dueDateFromNow());
+            } else {
+                // Fail now rather than after a long wait for a loan the member could not take anyway
+                if (!member.canBorrowMore()) {
+                    throw new IllegalStateException("Member has reached borrow limit");
+                }
+                if (member.hasBorrowed(book)) {
+                    throw new IllegalStateException("Book already borrowed by this member");
+                }
+                if (queue != null && findHold(queue, memberId) != null) {
+                    throw new IllegalStateException("Member already has a hold on this book");
+                }
+                Hold hold = new Hold(this, member, book.getCanonicalIsbn());
+                holdsByIsbn.computeIfAbsent(book.getCanonicalIsbn(), key -> new ArrayDeque<>()).add(hold);
+                return hold;
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+        return CompletableFuture.completedFuture(book);
+    }
+    
+    // Blocking variant - parks the caller (cheap on a virtual thread) until a copy is lent to the member
+    // The place in the queue is given up when the timeout expires or the caller is interrupted first
+    public Book checkoutBookOrWait(String memberId, String isbn, Duration timeout)
+            throws InterruptedException, TimeoutException {
+        CompletableFuture<Book> hold = placeHold(memberId, isbn);
+        try {
+            return hold.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            if (hold.cancel(false)) {
+                throw e;
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                return hold.join();  // Handed over while we were giving up - the loan stands
+            } catch (CompletionException failure) {
+                throw (RuntimeException) failure.getCause();
+            }
+        } catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();  // Holds only ever fail with the library's own exceptions
+        }
+    }
+    
+    public boolean cancelHold(String memberId, String isbn) {
+        if (memberId == null || isbn == null) {
+            return false;
+        }
+        Hold hold;
+        ReentrantLock lock = isbnLock(isbn);
+        lock.lock();
+        try {
+            Deque<Hold> queue = holdsByIsbn.get(Isbn.normalize(isbn));
+            hold = queue == null ? null : findHold(queue, memberId);
+        } finally {
+            lock.unlock();
+        }
+        return hold != null && hold.cancel(false);
+    }
+    
+    public int getHoldCount(String isbn) {
+        if (isbn == null) {
+            return 0;
+        }
+        ReentrantLock lock = isbnLock(isbn);
+        lock.lock();
+        try {
+            Deque<Hold> queue = holdsByIsbn.get(Isbn.normalize(isbn));
+            return queue == null ? 0 : queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Takes the hold off its queue; false once it has already been granted, failed or withdrawn
+    boolean withdrawHold(Hold hold) {
+        ReentrantLock lock = isbnLock(hold.getIsbn());
+        lock.lock();
+        try {
+            Deque<Hold> queue = holdsByIsbn.get(hold.getIsbn());
+            if (queue == null || !queue.remove(hold)) {
+                return false;
+            }
+            if (queue.isEmpty()) {
+                holdsByIsbn.remove(hold.getIsbn());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Lends free copies to the longest-waiting members, under the ISBN lock. A member who can no longer
+    // take the loan (limit reached meanwhile) has the hold failed and the copy moves on to the next one.
+    // Futures are completed by the caller once the lock is released and the loans are durable.
+    private long grantHolds(Book book, List<Runnable> handOffs) {
+        Deque<Hold> queue = holdsByIsbn.get(book.getCanonicalIsbn());
+        if (queue == null) {
+            return 0;
+        }
+        long lastSequence = 0;
+        while (!queue.isEmpty() && book.isAvailable()) {
+            Hold hold = queue.poll();
+            Member member = hold.getMember();
+            try {
+                lastSequence = lend(member, book, dueDateFromNow());
+                handOffs.add(() -> hold.grant(book));
+            } catch (IllegalStateException e) {
+                handOffs.add(() -> hold.fail(e));
+            }
+        }
+        if (queue.isEmpty()) {
+            holdsByIsbn.remove(book.getCanonicalIsbn());
+        }
+        return lastSequence;
+    }
+    
+    private static Hold findHold(Deque<Hold> queue, String memberId) {
+        for (Hold hold : queue) {
+            if (hold.getMember().getMemberId().equals(memberId)) {
+                return hold;
+            }
+        }
+        return null;
+    }
+    
+    // Batch transaction methods
+    // Members are resolved once per batch, and each ISBN lock is taken once per batch
+    public List<LoanOutcome> checkoutBooks(String memberId, Collection<String> isbns) {
+        List<LoanRequest> requests = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            requests.add(new LoanRequest(memberId, isbn));
+        }
+        return checkoutBooks(requests);
+    }
+    
+    public List<LoanOutcome> checkoutBooks(List<LoanRequest> requests) {
+        LoanOutcome[] outcomes = new LoanOutcome[requests.size()];
+        Map<String, Member> members = resolveMembers(requests, outcomes);
+        long dueAtMillis = dueDateFromNow();  // One due date for the whole batch
+        long sequence = applyByIsbnLock(requests, outcomes, members, true,
+                (member, book) -> lend(member, book, dueAtMillis));
+        awaitDurable(sequence);
+        return List.of(outcomes);
+    }
+    
+    public List<LoanOutcome> returnBooks(String memberId, Collection<String> isbns) {
+        List<LoanRequest> requests = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            requests.add(new LoanRequest(memberId, isbn));
+        }
+        return returnBooks(requests);
+    }
+    
+    public List<LoanOutcome> returnBooks(List<LoanRequest> requests) {
+        LoanOutcome[] outcomes = new LoanOutcome[requests.size()];
+        Map<String, Member> members = resolveMembers(requests, outcomes);
+        List<Runnable> handOffs = new ArrayList<>();
+        long sequence = applyByIsbnLock(requests, outcomes, members, false, (member, book) -> {
+            long returned = endLoan(member, book);
+            return Math.max(returned, grantHolds(book, handOffs));
+        });
+        awaitDurable(sequence);
+        handOffs.forEach(Runnable::run);
+        return List.of(outcomes);
+    }
+    
+    // Looks each distinct member up once; unknown members are recorded as failed outcomes
+    private Map<String, Member> resolveMembers(List<LoanRequest> requests, LoanOutcome[] outcomes) {
+        Map<String, Member> members = new HashMap<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            LoanRequest request = requests.get(i);
+            Member member = members.computeIfAbsent(request.memberId(), this::findMemberById);
+            if (member == null) {
+                outcomes[i] = LoanOutcome.failed(request, LoanOutcome.Status.MEMBER_NOT_FOUND,
+                        "Member not found");
+            }
+        }
+        return members;
+    }
+    
+    // Groups the still-pending requests by ISBN lock and applies each group under a single lock hold
+    // Returns the highest journal sequence written, so the caller waits for durability only once
+    // With checkLimit, an item is refused as LIMIT_REACHED only once the member's earlier loans - in this
+    // batch or elsewhere - have actually used up the limit; items that failed never count against it
+    private long applyByIsbnLock(List<LoanRequest> requests, LoanOutcome[] outcomes,
+                                 Map<String, Member> members, boolean checkLimit, LoanAction action) {
+        long lastSequence = 0;
+        Map<ReentrantLock, List<Integer>> groups = new IdentityHashMap<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            LoanRequest request = requests.get(i);
+            if (outcomes[i] != null) {
+                continue;
+            }
+            if (request.isbn() == null) {
+                outcomes[i] = LoanOutcome.failed(request, LoanOutcome.Status.BOOK_NOT_FOUND, "Book not found");
+                continue;
+            }
+            groups.computeIfAbsent(isbnLock(request.isbn()), lock -> new ArrayList<>()).add(i);
+        }
+        
+        for (Map.Entry<ReentrantLock, List<Integer>> group : groups.entrySet()) {
+            ReentrantLock lock = group.getKey();
+            lock.lock();
+            try {
+                for (int i : group.getValue()) {
+                    LoanRequest request = requests.get(i);
+                    Book book = booksByIsbn.get(request.isbn());
+                    if (book == null) {
+                        outcomes[i] = LoanOutcome.failed(request, LoanOutcome.Status.BOOK_NOT_FOUND,
+                                "Book not found");
+                        continue;
+                    }
+                    Member member = members.get(request.memberId());
+                    if (checkLimit && !member.canBorrowMore()) {
+                        outcomes[i] = LoanOutcome.failed(request, LoanOutcome.Status.LIMIT_REACHED,
+                                "Member has reached borrow limit");
+                        continue;
+                    }
+                    try {
+                        lastSequence = Math.max(lastSequence, action.apply(member, book));
+                        outcomes[i] = LoanOutcome.completed(request);
+                    } catch (IllegalStateException e) {
+                        outcomes[i] = LoanOutcome.failed(request, LoanOutcome.Status.REJECTED, e.getMessage());
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return lastSequence;
+    }
+    
+    private interface LoanAction {
+        long apply(Member member, Book book);  // Returns the journal sequence of the change
+    }
+    
+    // Opens a loan under the ISBN lock: the member's loan, its due date on the wheel, the journal record
+    // The record is appended under the member's lock too, so the journal orders one member's loans the
+    // way they happened even when they are for books under different ISBN locks - a return that freed
+    // a slot always precedes the checkout that used it
+    private long lend(Member member, Book book, long dueAtMillis) {
+        MemberTier tier = member.getTier();
+        OverdueWheel wheel = overdueWheel(book.getIsbn());
+        OverdueWheel.Entry due = wheel.schedule(member.getMemberId(), book.getIsbn(), tier, dueAtMillis);
+        synchronized (member) {
+            statistics.beginUpdate();  // The copy leaving the shelf and the loan count as one change
+            try {
+                member.borrowBook(book, due);
+                statistics.loanOpened(tier);
+            } catch (RuntimeException e) {
+                wheel.cancel(due);
+                throw e;
+            } finally {
+                statistics.endUpdate();
+            }
+            publish(ChangeEvent.Type.BOOK_CHECKED_OUT, member.getMemberId(), book.getIsbn(), 0);
+            return journal(new JournalRecord.BookCheckedOut(member.getMemberId(), book.getIsbn(), dueAtMillis));
+        }
+    }
+    
+    private long endLoan(Member member, Book book) {
+        OverdueWheel.Entry due;
+        long sequence;
+        synchronized (member) {
+            statistics.beginUpdate();
+            try {
+                due = member.endLoan(book);
+                if (due != null) {
+                    statistics.loanClosed(due.tier);
+                }
+            } finally {
+                statistics.endUpdate();
+            }
+            publish(ChangeEvent.Type.BOOK_RETURNED, member.getMemberId(), book.getIsbn(), 0);
+            sequence = journal(new JournalRecord.BookReturned(member.getMemberId(), book.getIsbn()));
+        }
+        if (due != null) {
+            overdueWheel(book.getIsbn()).cancel(due);
+        }
+        return sequence;
+    }
+    
+    private long dueDateFromNow() {
+        return clock.millis() + loanPeriod.toMillis();
+    }
+    
+    // Overdue methods
+    // Loans that fell due since the previous call, each reported once, earliest due first - call it
+    // periodically. Cost is proportional to the loans that expired, not to the number of open loans.
+    public List<Loan> pollOverdueLoans() {
+        long now = clock.millis();
+        List<Loan> overdue = new ArrayList<>();
+        for (OverdueWheel wheel : overdueLoans) {
+            overdue.addAll(wheel.advanceTo(now));
+        }
+        overdue.sort(Comparator.comparingLong(Loan::dueAtMillis));
+        return overdue;
+    }
+    
+    // The open loan of this book by this member with its due date, or null if there is none
+    public Loan findLoan(String memberId, String isbn) {
+        Member member = findMemberById(memberId);
+        Book book = findBookByIsbn(isbn);
+        if (member == null || book == null) {
+            return null;
+        }
+        OverdueWheel.Entry due = member.dueOf(book);
+        return due == null ? null : due.toLoan();
+    }
+    
+    // Open loans whose due date has not been reported by pollOverdueLoans yet
+    public long getPendingDueDatesCount() {
+        long pending = 0;
+        for (OverdueWheel wheel : overdueLoans) {
+            pending += wheel.size();
+        }
+        return pending;
     }
     
     // Reporting methods
     public int getTotalBooks() {
-        return books.size();
+        return booksByIsbn.size();
     }
     
     public int getAvailableBooksCount() {
-        return (int) books.stream().filter(Book::isAvailable).count();
+        return catalog.availableCount();
+    }
+    
+    public long getTotalCopiesCount() {
+        return totalCopies.sum();
+    }
+    
+    public long getAvailableCopiesCount() {
+        return availableCopies.sum();
+    }
+    
+    // Decade rollup, e.g. {2000=2, 2010=1}
+    public SortedMap<Integer, Integer> getBookCountsByDecade() {
+        return catalog.countsByDecade();
     }
     
     public int getTotalMembers() {
-        return members.size();
+        return membersById.size();
+    }
+    
+    // Per-author, per-decade and per-tier aggregates, kept current by every change
+    public LibraryStatistics getStatistics() {
+        return statistics;
+    }
+    
+    // Views
+    // The catalog and its copy counts frozen at this moment, for reports that need one consistent answer.
+    // Checkouts and returns never wait for a view. Close it when done so the states it pins can be dropped.
+    public LibraryView openView() {
+        return new LibraryView(this, versionClock);
+    }
+    
+    // Candidates for a view to filter by version - books removed since are retired in the clock
+    Collection<Book> catalogByAuthor(String author) {
+        return catalog.findByAuthor(authorKey(author));
+    }
+    
+    // Change events
+    // The handler runs on the subscription's own thread and sees changes made after this call, in
+    // batches. Transactions never wait for it: a handler that falls too far behind skips ahead.
+    public ChangeSubscription subscribe(String subscriberName, ChangeEventHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+        ChangeEventRing ring = changeEvents;
+        if (ring == null) {
+            synchronized (this) {
+                ring = changeEvents;
+                if (ring == null) {
+                    ring = new ChangeEventRing(CHANGE_EVENT_CAPACITY);
+                    changeEvents = ring;
+                }
+            }
+        }
+        subscriberCount.incrementAndGet();
+        ChangeSubscription subscription = new ChangeSubscription(subscriberName, ring, handler,
+                subscriberCount::decrementAndGet);
+        subscription.start();
+        return subscription;
+    }
+    
+    // Called where the change is journaled, so events of one ISBN are published in the order they happened
+    // Allocation-free: only existing strings and primitives go into the preallocated ring
+    private void publish(ChangeEvent.Type type, String memberId, String isbn, int copies) {
+        ChangeEventRing ring = changeEvents;
+        if (ring != null && subscriberCount.get() > 0) {
+            ring.publish(type, memberId, isbn, copies, clock.millis());
+        }
+    }
+    
+    // Snapshots - see LibrarySnapshot for the format; open the file with LibrarySnapshot.open for lazy lookups
+    public void exportSnapshot(Path file) throws IOException {
+        LibrarySnapshot.write(this, file);
+    }
+    
+    public static Library importSnapshot(String name, Path file) throws IOException {
+        return LibrarySnapshot.open(file).toLibrary(name);
+    }
+    
+    // Journal hooks - used by LibraryJournal once recovery is done
+    void attachJournal(LibraryJournal journal) {
+        this.journal = journal;
+    }
+    
+    boolean hasLoan(String memberId, String isbn) {
+        Member member = findMemberById(memberId);
+        Book book = findBookByIsbn(isbn);
+        return member != null && book != null && member.hasBorrowed(book);
+    }
+    
+    // Records a change while its locks are still held - the ISBN lock, and the member's for loans - so
+    // the journal orders the changes to each book and to each member the way they were made in memory
+    private long journal(JournalRecord record) {
+        LibraryJournal current = journal;
+        return current == null ? 0 : current.append(record);
+    }
+    
+    // Waits for the group commit outside the lock, so other transactions keep flowing meanwhile
+    private void awaitDurable(long sequence) {
+        LibraryJournal current = journal;
+        if (current != null && sequence > 0) {
+            current.awaitDurable(sequence);
+        }
+    }
+    
+    // Helper methods
+    // Every spelling of an ISBN maps to the same stripe, so "0-13-235088-2" and "9780132350884" exclude each other
+    private ReentrantLock isbnLock(String isbn) {
+        return isbnLocks.lockFor(Isbn.hash(isbn));
+    }
+    
+    // The wheel of the ISBN's lock stripe - only touched while that lock is held, apart from polling
+    private OverdueWheel overdueWheel(String isbn) {
+        return overdueLoans[isbnLocks.indexFor(Isbn.hash(isbn))];
+    }
+    
+    // A book's ISBN may be any identifier, but one written like an ISBN must have the right check digit
+    private static void requireIsbn(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        if (book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book ISBN cannot be null");
+        }
+        Isbn.parse(book.getIsbn());
+    }
+    
+    private static <T> Page<T> page(NavigableMap<String, T> ordered, String afterKey, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        NavigableMap<String, T> remaining = afterKey == null ? ordered : ordered.tailMap(afterKey, false);
+        List<T> items = new ArrayList<>(pageSize);
+        String lastKey = null;
+        for (Map.Entry<String, T> entry : remaining.entrySet()) {
+            if (items.size() == pageSize) {
+                return new Page<>(List.copyOf(items), lastKey);  // At least one more entry follows
+            }
+            items.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new Page<>(List.copyOf(items), null);
+    }
+    
+    static int decadeOf(int year) {
+        return Math.floorDiv(year, 10) * 10;
+    }
+    
+    // Case-insensitive key so "joshua bloch" and "Joshua Bloch" land in the same bucket
+    static String authorKey(String author) {
+        return author == null ? "" : author.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
     }
     
     @Override
     public String toString() {
         return String.format("Library{name='%s', books=%d, members=%d}",
-                name, books.size(), members.size());
+                name, booksByIsbn.size(), membersById.size());
     }
 }
 
@@ -0,0 +1,624 @@
+package LibraryManagement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// LibraryClusterClient - Library front end over a cluster of LibraryNode processes
+//
+// The node list should be in partition order: node i serves partition i of nodes.size(). Book requests go
+// to the node that owns the ISBN; searches are sent to every node at once and the answers merged. A node
+// that gets a request for a key it does not own answers MISROUTED with the owner's partition; the client
+// then asks every node which partition it serves and resends the request to the owner.
+//
+// A checkout first reserves a loan slot on the member's home node, then checks out on the book's node,
+// then confirms the slot - or cancels it if the checkout failed. A reservation that is never confirmed
+// or cancelled expires on the home node. A return goes the other way round. The home node keeps each
+// loan by ISBN, so the confirm and the release are retried when their answer is lost; if the home node
+// stays unreachable the book has still moved, and reconcileLoans later recounts the member's loans from
+// the book nodes. The library's own exceptions come back as the same types with the node's message; a
+// broken connection is an UncheckedIOException.
+//
+// Thread-safe: each node has a small pool of connections, one per request in flight.
+public class LibraryClusterClient implements AutoCloseable {
+    private static final int AVAILABLE_PAGE_SIZE = 1_000;
+    private static final int REGISTRATION_ATTEMPTS = 3;
+    private static final int HOME_ATTEMPTS = 3;        // Sends of CONFIRM_LOAN or RELEASE_LOAN before giving up
+    private static final int RECONCILE_ATTEMPTS = 5;
+    
+    private final List<InetSocketAddress> nodes;
+    private final List<Queue<Connection>> idle;
+    private volatile int[] routes;  // Partition -> index into nodes
+    
+    // One socket with its streams; used by one request at a time
+    private static final class Connection implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        
+        Connection(InetSocketAddress address) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address);
+                this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.writeInt(ClusterProtocol.PROTOCOL);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+        
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+    
+    // Constructor
+    public LibraryClusterClient(List<InetSocketAddress> nodes) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        this.nodes = List.copyOf(nodes);
+        this.idle = new ArrayList<>(nodes.size());
+        this.routes = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            idle.add(new ConcurrentLinkedQueue<>());
+            routes[i] = i;
+        }
+    }
+    
+    // Getters
+    public int getNodeCount() {
+        return nodes.size();
+    }
+    
+    public int getTotalBooks() {
+        int total = 0;
+        for (DataInputStream counts : gather(new Request(ClusterProtocol.COUNTS))) {
+            total += readInt(counts);
+        }
+        return total;
+    }
+    
+    // Members are registered on every node, so any one of them has the full count
+    public int getTotalMembers() {
+        DataInputStream counts = call(0, new Request(ClusterProtocol.COUNTS));
+        readInt(counts);
+        return readInt(counts);
+    }
+    
+    // Loans of the member anywhere in the cluster, as their home node counts them against the limit
+    public int getLoanCount(String memberId) {
+        if (memberId == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        DataInputStream slots = call(memberNode(memberId), new Request(ClusterProtocol.LOAN_SLOTS).string(memberId));
+        readLong(slots);
+        return readStrings(slots).size();
+    }
+    
+    // Book management methods
+    public void addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        if (book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book ISBN cannot be null");
+        }
+        call(bookNode(book.getIsbn()), new Request(ClusterProtocol.ADD_BOOK).book(book));
+    }
+    
+    // Returns a copy of the book as its node sees it now
+    public Book findBookByIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        DataInputStream response = call(bookNode(isbn), new Request(ClusterProtocol.FIND_BOOK).string(isbn));
+        try {
+            return response.readBoolean() ? ClusterProtocol.readBook(response) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public List<Book> findBooksByAuthor(String author) {
+        if (author == null) {
+            return new ArrayList<>();
+        }
+        return readBooks(gather(new Request(ClusterProtocol.FIND_BY_AUTHOR).string(author)));
+    }
+    
+    // The first page comes from every node at once; each node's remaining pages follow one at a time,
+    // so no single answer is larger than AVAILABLE_PAGE_SIZE books
+    public List<Book> findAvailableBooks() {
+        List<Book> books = new ArrayList<>();
+        List<DataInputStream> firstPages = gather(availablePage(null));
+        for (int node = 0; node < firstPages.size(); node++) {
+            String cursor = readPage(firstPages.get(node), books);
+            while (cursor != null) {
+                cursor = readPage(call(node, availablePage(cursor)), books);
+            }
+        }
+        return books;
+    }
+    
+    // Member management methods
+    public void registerMember(Member member) {
+        if (member == null) {
+            throw new IllegalArgumentException("Member cannot be null");
+        }
+        if (member.getMemberId() == null) {
+            throw new IllegalArgumentException("Member ID cannot be null");
+        }
+        List<Answer> answers = scatter(new Request(ClusterProtocol.REGISTER_MEMBER).member(member).flag(false));
+        boolean anyRegistered = answers.stream().anyMatch(answer -> answer.failure == null);
+        boolean anyUnreachable = answers.stream().anyMatch(answer -> answer.failure instanceof UncheckedIOException);
+        if (!anyRegistered && !anyUnreachable) {
+            throw firstFailure(answers);  // Rejected everywhere, e.g. already registered - nothing to repair
+        }
+        
+        // Some nodes have the member and some may not: retry those until every node has it. A retry
+        // accepts an identical registration, so it also completes one a dropped answer hid from us.
+        Request retry = new Request(ClusterProtocol.REGISTER_MEMBER).member(member).flag(true);
+        for (int attempt = 1; attempt < REGISTRATION_ATTEMPTS; attempt++) {
+            for (int node = 0; node < answers.size(); node++) {
+                if (answers.get(node).failure != null) {
+                    try {
+                        answers.set(node, new Answer(call(node, retry), null));
+                    } catch (RuntimeException e) {
+                        answers.set(node, new Answer(null, e));
+                    }
+                }
+            }
+        }
+        RuntimeException failure = firstFailure(answers);
+        if (failure != null) {
+            long missing = answers.stream().filter(answer -> answer.failure != null).count();
+            boolean unreachable = answers.stream().allMatch(answer -> answer.failure == null
+                    || answer.failure instanceof UncheckedIOException);
+            throw new IllegalStateException("Member " + member.getMemberId() + " is missing on " + missing + " of "
+                    + answers.size() + " nodes" + (unreachable
+                    ? "; registering it again completes the registration"
+                    : "; another member has that ID there"), failure);
+        }
+    }
+    
+    // Transaction methods
+    public void checkoutBook(String memberId, String isbn) {
+        if (memberId == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        if (isbn == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        long reservation = readLong(call(memberNode(memberId),
+                new Request(ClusterProtocol.RESERVE_LOAN).string(memberId).string(isbn)));
+        try {
+            call(bookNode(isbn), new Request(ClusterProtocol.CHECKOUT).string(memberId).string(isbn));
+        } catch (RuntimeException e) {
+            try {
+                call(memberNode(memberId), new Request(ClusterProtocol.CANCEL_RESERVATION)
+                        .string(memberId).longValue(reservation));
+            } catch (RuntimeException undo) {
+                e.addSuppressed(undo);  // The lease frees the slot instead
+            }
+            throw e;
+        }
+        tellHome(memberId, new Request(ClusterProtocol.CONFIRM_LOAN).string(memberId).longValue(reservation)
+                .string(isbn), "checked out");
+    }
+    
+    public void returnBook(String memberId, String isbn) {
+        if (memberId == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        if (isbn == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        call(bookNode(isbn), new Request(ClusterProtocol.RETURN).string(memberId).string(isbn));
+        tellHome(memberId, new Request(ClusterProtocol.RELEASE_LOAN).string(memberId).string(isbn), "returned");
+    }
+    
+    // Recounts the member's loans on their home node from what every node has actually lent them -
+    // repairs the count after a confirm or release that never arrived. Safe while the member borrows and
+    // returns: the home node applies the recount only if no confirm or release came in meanwhile.
+    public void reconcileLoans(String memberId) {
+        if (memberId == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            long version = readLong(call(memberNode(memberId), new Request(ClusterProtocol.LOAN_SLOTS).string(memberId)));
+            List<String> lent = new ArrayList<>();
+            for (DataInputStream loans : gather(new Request(ClusterProtocol.MEMBER_LOANS).string(memberId))) {
+                lent.addAll(readStrings(loans));
+            }
+            Request recount = new Request(ClusterProtocol.RECONCILE_LOANS).string(memberId).longValue(version)
+                    .strings(lent);
+            if (readBoolean(call(memberNode(memberId), recount))) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Loans of member " + memberId + " kept changing; reconcile again later");
+    }
+    
+    // Stops every node process; the client cannot be used afterwards
+    public void shutdownCluster() {
+        gather(new Request(ClusterProtocol.SHUTDOWN));
+        close();
+    }
+    
+    @Override
+    public void close() {
+        for (Queue<Connection> pool : idle) {
+            Connection connection;
+            while ((connection = pool.poll()) != null) {
+                connection.close();
+            }
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("LibraryClusterClient{nodes=%d, books=%d, members=%d}",
+                nodes.size(), getTotalBooks(), getTotalMembers());
+    }
+    
+    // Helper methods
+    private int bookNode(String isbn) {
+        return routes[ClusterProtocol.partitionOf(isbn, nodes.size())];
+    }
+    
+    private int memberNode(String memberId) {
+        return routes[ClusterProtocol.homeOf(memberId, nodes.size())];
+    }
+    
+    // Sends an idempotent loan update to the member's home node, again if the answer is lost. The book
+    // node has already changed by now, so when every send fails only the count is behind.
+    private void tellHome(String memberId, Request request, String done) {
+        UncheckedIOException lost = null;
+        for (int attempt = 0; attempt < HOME_ATTEMPTS; attempt++) {
+            try {
+                call(memberNode(memberId), request);
+                return;
+            } catch (UncheckedIOException e) {
+                if (lost == null) {
+                    lost = e;
+                } else {
+                    lost.addSuppressed(e);
+                }
+            }
+        }
+        throw new UncheckedIOException("Book " + done + ", but the home node of member " + memberId
+                + " did not record it; reconcileLoans repairs the count", lost.getCause());
+    }
+    
+    private static Request availablePage(String afterIsbn) {
+        return new Request(ClusterProtocol.FIND_AVAILABLE).string(afterIsbn).integer(AVAILABLE_PAGE_SIZE);
+    }
+    
+    // Asks every node which partition it serves; the node list must cover each partition exactly once
+    private void refreshRoutes() {
+        int[] refreshed = new int[nodes.size()];
+        Arrays.fill(refreshed, -1);
+        List<DataInputStream> answers = gather(new Request(ClusterProtocol.COUNTS));
+        for (int node = 0; node < answers.size(); node++) {
+            DataInputStream counts = answers.get(node);
+            readInt(counts);
+            readInt(counts);
+            int partition = readInt(counts);
+            int partitionCount = readInt(counts);
+            if (partitionCount != nodes.size() || refreshed[partition] != -1) {
+                throw new IllegalStateException("Node " + nodes.get(node) + " serves partition " + partition + " of "
+                        + partitionCount + ", which does not fit a list of " + nodes.size() + " nodes");
+            }
+            refreshed[partition] = node;
+        }
+        routes = refreshed;
+    }
+    
+    // Request payload; IOException cannot happen while writing to memory
+    private static final class Request {
+        final ClusterProtocol.Message message;
+        
+        Request(byte operation) {
+            try {
+                this.message = new ClusterProtocol.Message(operation);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        Request string(String value) {
+            try {
+                ClusterProtocol.writeString(message, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        
+        Request book(Book book) {
+            try {
+                ClusterProtocol.writeBook(message, book);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        
+        Request member(Member member) {
+            try {
+                ClusterProtocol.writeMember(message, member);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        
+        Request integer(int value) {
+            try {
+                message.writeInt(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        
+        Request longValue(long value) {
+            try {
+                message.writeLong(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        
+        Request strings(List<String> values) {
+            try {
+                ClusterProtocol.writeStrings(message, values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        
+        Request flag(boolean value) {
+            try {
+                message.writeBoolean(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+    }
+    
+    // One node's answer to a scattered request: the response, or the exception it turned into
+    private record Answer(DataInputStream response, RuntimeException failure) {
+    }
+    
+    // The node answered MISROUTED; owner is the partition it says the key belongs to
+    private static final class MisroutedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        final int owner;
+        
+        MisroutedException(int owner, String message) {
+            super(message);
+            this.owner = owner;
+        }
+    }
+    
+    // A misrouted request means our node list disagrees with the cluster, so learn the routes and resend
+    // it once to the owner
+    private DataInputStream call(int node, Request request) {
+        try {
+            return exchange(node, request);
+        } catch (MisroutedException e) {
+            refreshRoutes();
+            if (e.owner < 0 || e.owner >= nodes.size()) {
+                throw new IllegalStateException(e.getMessage());
+            }
+            try {
+                return exchange(routes[e.owner], request);
+            } catch (MisroutedException again) {
+                throw new IllegalStateException(again.getMessage());
+            }
+        }
+    }
+    
+    private DataInputStream exchange(int node, Request request) {
+        Connection connection = acquire(node);
+        send(node, connection, request);
+        return receive(node, connection);
+    }
+    
+    private List<DataInputStream> gather(Request request) {
+        List<Answer> answers = scatter(request);
+        RuntimeException failure = firstFailure(answers);
+        if (failure != null) {
+            throw failure;
+        }
+        List<DataInputStream> responses = new ArrayList<>(answers.size());
+        for (Answer answer : answers) {
+            responses.add(answer.response);
+        }
+        return responses;
+    }
+    
+    // Scatter-gather: the request goes out to every node before the first answer is read. A node that
+    // cannot be reached gets its failure in its slot; the others are still answered.
+    private List<Answer> scatter(Request request) {
+        List<Connection> connections = new ArrayList<>(nodes.size());
+        List<Answer> answers = new ArrayList<>(nodes.size());
+        for (int node = 0; node < nodes.size(); node++) {
+            try {
+                Connection connection = acquire(node);
+                send(node, connection, request);
+                connections.add(connection);
+                answers.add(null);
+            } catch (RuntimeException e) {
+                connections.add(null);
+                answers.add(new Answer(null, e));
+            }
+        }
+        for (int node = 0; node < nodes.size(); node++) {
+            if (connections.get(node) != null) {
+                try {
+                    answers.set(node, new Answer(receive(node, connections.get(node)), null));
+                } catch (RuntimeException e) {
+                    answers.set(node, new Answer(null, e));
+                }
+            }
+        }
+        return answers;
+    }
+    
+    // Null when every node answered; otherwise the first failure with the others suppressed
+    private static RuntimeException firstFailure(List<Answer> answers) {
+        RuntimeException failure = null;
+        for (Answer answer : answers) {
+            if (answer.failure == null) {
+                continue;
+            }
+            if (failure == null) {
+                failure = answer.failure;
+            } else {
+                failure.addSuppressed(answer.failure);
+            }
+        }
+        return failure;
+    }
+    
+    private Connection acquire(int node) {
+        Connection connection = idle.get(node).poll();
+        if (connection != null) {
+            return connection;
+        }
+        try {
+            return new Connection(nodes.get(node));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot reach node " + node + " at " + nodes.get(node), e);
+        }
+    }
+    
+    private void send(int node, Connection connection, Request request) {
+        try {
+            request.message.sendTo(connection.out);
+        } catch (IOException e) {
+            connection.close();
+            throw new UncheckedIOException("Node " + node + " dropped the connection", e);
+        }
+    }
+    
+    // Hands the connection back to the pool once the whole answer is read, then turns a failure status into
+    // the exception the node threw
+    private DataInputStream receive(int node, Connection connection) {
+        DataInputStream response;
+        byte status;
+        try {
+            response = ClusterProtocol.readFrame(connection.in);
+            if (response == null) {
+                throw new IOException("Connection closed");
+            }
+            status = response.readByte();
+        } catch (IOException e) {
+            connection.close();
+            throw new UncheckedIOException("Node " + node + " dropped the connection", e);
+        }
+        idle.get(node).offer(connection);
+        if (status == ClusterProtocol.OK) {
+            return response;
+        }
+        if (status == ClusterProtocol.MISROUTED) {
+            try {
+                int owner = response.readInt();
+                throw new MisroutedException(owner, ClusterProtocol.readString(response));
+            } catch (IOException e) {
+                throw new IllegalStateException("Node " + node + " sent a truncated redirect");
+            }
+        }
+        String message;
+        try {
+            message = ClusterProtocol.readString(response);
+        } catch (IOException e) {
+            message = "Node " + node + " failed";
+        }
+        if (status == ClusterProtocol.NOT_FOUND) {
+            throw new IllegalArgumentException(message);
+        }
+        throw new IllegalStateException(message);
+    }
+    
+    private static List<Book> readBooks(List<DataInputStream> responses) {
+        List<Book> books = new ArrayList<>();
+        try {
+            for (DataInputStream response : responses) {
+                for (int count = response.readInt(); count > 0; count--) {
+                    books.add(ClusterProtocol.readBook(response));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return books;
+    }
+    
+    // Adds one FIND_AVAILABLE page to books and returns the node's cursor for the next one
+    private static String readPage(DataInputStream response, List<Book> books) {
+        books.addAll(readBooks(List.of(response)));
+        try {
+            return ClusterProtocol.readString(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static long readLong(DataInputStream response) {
+        try {
+            return response.readLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static boolean readBoolean(DataInputStream response) {
+        try {
+            return response.readBoolean();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static List<String> readStrings(DataInputStream response) {
+        try {
+            return ClusterProtocol.readStrings(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static int readInt(DataInputStream response) {
+        try {
+            return response.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
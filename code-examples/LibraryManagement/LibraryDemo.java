@@ -1,8 +1,15 @@
 package LibraryManagement;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 // Demo class to test the Library Management System
 public class LibraryDemo {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         // Create a library
         Library library = new Library("City Central Library");
         
@@ -34,6 +41,9 @@ public class LibraryDemo {
         
         System.out.println("Member: " + member1);
         System.out.println("Borrowed: " + member1.getBorrowedCount() + " books");
+        System.out.println("Due back: " + library.findLoan("M001", "978-0134685991").dueAt()
+                + " (" + library.getLoanPeriod().toDays() + "-day loan)");
+        System.out.println("Overdue right now: " + library.pollOverdueLoans().size());
         
         // Try to checkout unavailable book
         try {
@@ -52,6 +62,85 @@ public class LibraryDemo {
         System.out.println("\n--- Finding books by author ---");
         var booksByAuthor = library.findBooksByAuthor("Joshua Bloch");
         booksByAuthor.forEach(System.out::println);
+        
+        // Title search - "jav" matches "Java" as a prefix
+        System.out.println("\n--- Searching titles for 'head jav' ---");
+        library.searchTitles("head jav", 10).forEach(System.out::println);
+        
+        // Publication year queries
+        System.out.println("\n--- Books published 2005-2010 ---");
+        library.findBooksPublishedBetween(2005, 2010).forEach(System.out::println);
+        System.out.println("Books per decade: " + library.getBookCountsByDecade());
+        
+        // Holdings - several copies of one title share a single Book
+        System.out.println("\n--- Adding two more copies of Clean Code ---");
+        library.addCopies("978-0132350884", 2);
+        library.checkoutBook("M001", "978-0132350884");
+        library.checkoutBook("M002", "978-0132350884");
+        System.out.println(library.findBookByIsbn("978-0132350884"));
+        System.out.println("Copies on the shelf: " + library.getAvailableCopiesCount()
+                + " of " + library.getTotalCopiesCount());
+        
+        // Batch checkout - one outcome per book instead of one exception per call
+        System.out.println("\n--- Batch checkout ---");
+        var outcomes = library.checkoutBooks("M002",
+                List.of("978-0134685991", "978-0596009205", "978-0000000000"));
+        outcomes.forEach(outcome -> System.out.println(outcome.isbn() + " -> " + outcome.status()
+                + " (" + outcome.message() + ")"));
+        
+        // Cursor paging - fetch two books at a time
+        System.out.println("\n--- Paging through the catalog ---");
+        Page<Book> page = library.getBooksPage(null, 2);
+        page.items().forEach(book -> System.out.println(book.getIsbn() + " " + book.getTitle()));
+        while (page.hasNext()) {
+            page = library.getBooksPage(page.nextCursor(), 2);
+            page.items().forEach(book -> System.out.println(book.getIsbn() + " " + book.getTitle()));
+        }
+        
+        // Holds - Bob queues for Head First Java and gets it the moment Alice returns it
+        // An audit feed records the changes on its own thread
+        List<String> feed = new ArrayList<>();
+        ChangeSubscription audit = library.subscribe("audit", event -> feed.add(event.getType() + " "
+                + event.getIsbn() + (event.getMemberId() != null ? " by " + event.getMemberId() : "")));
+        System.out.println("\n--- Placing a hold ---");
+        CompletableFuture<Book> hold = library.placeHold("M002", "978-0596009205");
+        System.out.println("Waiting for Head First Java: " + library.getHoldCount("978-0596009205") + " hold(s)");
+        library.returnBook("M001", "978-0596009205");
+        System.out.println("Handed over to M002: " + hold.join().getTitle()
+                + ", holds left: " + library.getHoldCount("978-0596009205"));
+        
+        audit.close();  // Delivers what is still in flight before stopping
+        System.out.println("\n--- Change feed ---");
+        feed.forEach(System.out::println);
+        
+        // Reporting - aggregates are kept current, so no report walks the catalog
+        System.out.println("\n--- Statistics ---");
+        StatisticsSnapshot statistics = library.getStatistics().snapshot();
+        System.out.println("Catalog: " + statistics.catalog());
+        statistics.byDecade().forEach((decade, counts) -> System.out.println(decade + "s: " + counts));
+        System.out.println("Robert Martin: " + library.getStatistics().getAuthor("robert martin"));
+        System.out.println("Loans by tier: " + statistics.loansByTier());
+        
+        // Views - a report keeps seeing the moment it started while loans carry on
+        System.out.println("\n--- Consistent view ---");
+        try (LibraryView view = library.openView()) {
+            library.returnBook("M002", "978-0132350884");
+            System.out.println("Clean Code now: " + library.findBookByIsbn("978-0132350884").getAvailableCopies()
+                    + " on the shelf, in the view: " + view.getAvailableCopies(library.findBookByIsbn("978-0132350884")));
+            System.out.println("View at version " + view.getVersion() + ": " + view.getAvailableBooksCount()
+                    + " of " + view.getTotalBooks() + " titles available");
+        }
+        
+        // Snapshots - a restart maps the file and answers lookups without loading the whole catalog
+        System.out.println("\n--- Snapshot ---");
+        Path snapshotFile = Files.createTempFile("library", ".snapshot");
+        library.exportSnapshot(snapshotFile);
+        LibrarySnapshot snapshot = LibrarySnapshot.open(snapshotFile);
+        System.out.println(snapshot);
+        System.out.println("Lazy lookup: " + snapshot.findBook("978-0132350884"));
+        System.out.println("M002's loans: " + snapshot.getLoans("M002").size());
+        System.out.println("Restored: " + snapshot.toLibrary("City Central Library (restored)"));
+        Files.delete(snapshotFile);
     }
 }
 
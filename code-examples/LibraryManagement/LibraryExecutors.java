@@ -0,0 +1,63 @@
+package LibraryManagement;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executors for serving library requests
+//
+// On Java 21+ every request gets its own virtual thread: a request that blocks (a contended ISBN lock,
+// the journal's group commit, a hold) parks without holding an OS thread, so tens of thousands of
+// them cost little more than their stacks. The virtual-thread API is looked up reflectively so the
+// code still compiles and runs on Java 17, where a fixed pool of platform threads is used instead.
+public final class LibraryExecutors {
+    private static final Method OF_VIRTUAL = find(Thread.class, "ofVirtual");
+    private static final Method THREAD_PER_TASK = find(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+    
+    private LibraryExecutors() {
+    }
+    
+    public static boolean hasVirtualThreads() {
+        return OF_VIRTUAL != null && THREAD_PER_TASK != null;
+    }
+    
+    // A virtual thread per task where available, otherwise newPlatformExecutor with a few threads per core
+    public static ExecutorService newRequestExecutor(String name) {
+        if (hasVirtualThreads()) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+                ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+                return (ExecutorService) THREAD_PER_TASK.invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                // Present but not usable, e.g. preview-only - fall through to platform threads
+            }
+        }
+        return newPlatformExecutor(name, Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+    
+    // Fixed pool of daemon threads; extra tasks queue until a thread is free
+    public static ExecutorService newPlatformExecutor(String name, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Helper methods
+    private static Method find(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
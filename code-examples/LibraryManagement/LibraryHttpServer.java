@@ -0,0 +1,263 @@
+package LibraryManagement;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+// LibraryHttpServer - Library over HTTP, on the JDK's built-in server
+//
+// Usage:
+//   java LibraryManagement.LibraryHttpServer [port] [books] [members]
+//   -> serves a generated catalog on localhost (port 0 picks a free one) until the process is stopped
+//
+// Endpoints, all answering JSON:
+//   POST /checkout?member=M1&isbn=978...   loan one copy
+//   POST /return?member=M1&isbn=978...     give it back
+//   GET  /books?author=Joshua+Bloch        books by author, with their copy counts
+//   GET  /availability[?isbn=978...]       catalog-wide counts, or one book's copies
+//
+// Status codes follow the library's exceptions: 404 for IllegalArgumentException (unknown member or
+// book), 409 for IllegalStateException (no copy left, limit reached, ...). Requests go through a
+// LibraryService, so once it is saturated the server answers 503 with Retry-After at once instead of
+// queueing. Exchanges are answered from the service's threads; the server's own threads only parse.
+public class LibraryHttpServer implements AutoCloseable {
+    private final HttpServer server;
+    private final LibraryService service;
+    private final ExecutorService dispatcher;
+    
+    private LibraryHttpServer(HttpServer server, LibraryService service, ExecutorService dispatcher) {
+        this.server = server;
+        this.service = service;
+        this.dispatcher = dispatcher;
+    }
+    
+    // Binds to the loopback interface and starts serving
+    public static LibraryHttpServer start(Library library, int port) throws IOException {
+        return start(new LibraryService(library), new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+    
+    public static LibraryHttpServer start(LibraryService service, InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 1024);
+        ExecutorService dispatcher = LibraryExecutors.newRequestExecutor("library-http");
+        LibraryHttpServer http = new LibraryHttpServer(server, service, dispatcher);
+        server.createContext("/checkout", exchange -> http.loan(exchange, true));
+        server.createContext("/return", exchange -> http.loan(exchange, false));
+        server.createContext("/books", http::books);
+        server.createContext("/availability", http::availability);
+        server.setExecutor(dispatcher);
+        server.start();
+        return http;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int books = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int members = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        LibraryHttpServer server = start(sampleLibrary(books, members), port);
+        System.out.println("LISTENING " + server.getPort() + " (" + books + " books, " + members + " members)");
+    }
+    
+    // Books ISBN-0 .. ISBN-(books-1) with two copies each, 50 authors, members M0 .. M(members-1)
+    public static Library sampleLibrary(int books, int members) {
+        Library library = new Library("HTTP Library");
+        for (int b = 0; b < books; b++) {
+            library.addBook(new Book("ISBN-" + b, "Title " + b, "Author " + (b % 50), 1950 + b % 75, 2));
+        }
+        for (int m = 0; m < members; m++) {
+            library.registerMember(new Member("M" + m, "Member " + m, "member" + m + "@example.com"));
+        }
+        return library;
+    }
+    
+    // Getters
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    public LibraryService getService() {
+        return service;
+    }
+    
+    // Stops accepting connections, lets the accepted requests finish, then stops the threads
+    @Override
+    public void close() {
+        server.stop(1);
+        service.close();
+        dispatcher.shutdown();
+    }
+    
+    // Handlers
+    private void loan(HttpExchange exchange, boolean checkout) {
+        if (!requireMethod(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> query = query(exchange);
+        String memberId = query.get("member");
+        String isbn = query.get("isbn");
+        if (memberId == null || isbn == null) {
+            send(exchange, 400, error("member and isbn are required"));
+            return;
+        }
+        CompletableFuture<Void> loan = checkout ? service.checkoutBook(memberId, isbn) : service.returnBook(memberId, isbn);
+        respond(exchange, loan, done -> "{\"status\":\"OK\"}");
+    }
+    
+    private void books(HttpExchange exchange) {
+        if (!requireMethod(exchange, "GET")) {
+            return;
+        }
+        String author = query(exchange).get("author");
+        if (author == null) {
+            send(exchange, 400, error("author is required"));
+            return;
+        }
+        respond(exchange, service.findBooksByAuthor(author), LibraryHttpServer::booksJson);
+    }
+    
+    private void availability(HttpExchange exchange) {
+        if (!requireMethod(exchange, "GET")) {
+            return;
+        }
+        String isbn = query(exchange).get("isbn");
+        if (isbn != null) {
+            respond(exchange, service.findBookByIsbn(isbn), book -> {
+                if (book == null) {
+                    throw new IllegalArgumentException("Book not found");
+                }
+                return bookJson(book);
+            });
+            return;
+        }
+        Library library = service.getLibrary();
+        send(exchange, 200, "{\"books\":" + library.getTotalBooks()
+                + ",\"availableBooks\":" + library.getAvailableBooksCount()
+                + ",\"copies\":" + library.getTotalCopiesCount()
+                + ",\"availableCopies\":" + library.getAvailableCopiesCount() + "}");
+    }
+    
+    // Helper methods
+    private interface Body<T> {
+        String of(T value);
+    }
+    
+    // Answers once the service call completes, from whichever thread completed it
+    private static <T> void respond(HttpExchange exchange, CompletableFuture<T> call, Body<T> body) {
+        call.whenComplete((value, failure) -> {
+            if (failure == null) {
+                try {
+                    send(exchange, 200, body.of(value));
+                    return;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (cause instanceof RejectedExecutionException) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, error(cause.getMessage()));
+            } else if (cause instanceof IllegalArgumentException) {
+                send(exchange, 404, error(cause.getMessage()));
+            } else if (cause instanceof IllegalStateException) {
+                send(exchange, 409, error(cause.getMessage()));
+            } else {
+                send(exchange, 500, error(String.valueOf(cause)));
+            }
+        });
+    }
+    
+    private static boolean requireMethod(HttpExchange exchange, String method) {
+        if (exchange.getRequestMethod().equals(method)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", method);
+        send(exchange, 405, error("Use " + method));
+        return false;
+    }
+    
+    private static void send(HttpExchange exchange, int status, String json) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        try (exchange; OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            out.write(body);
+        } catch (IOException e) {
+            // Client hung up; nothing left to answer
+        }
+    }
+    
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+    
+    private static String booksJson(List<Book> books) {
+        StringBuilder json = new StringBuilder("[");
+        for (Book book : books) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(bookJson(book));
+        }
+        return json.append(']').toString();
+    }
+    
+    private static String bookJson(Book book) {
+        return "{\"isbn\":" + quote(book.getIsbn()) + ",\"title\":" + quote(book.getTitle())
+                + ",\"author\":" + quote(book.getAuthor()) + ",\"year\":" + book.getYearPublished()
+                + ",\"copies\":" + book.getTotalCopies() + ",\"availableCopies\":" + book.getAvailableCopies() + "}";
+    }
+    
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+    
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,422 @@
+package LibraryManagement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// LibraryJournal - Durable append-only log of every Library change
+//
+// Usage:
+//   LibraryJournal journal = LibraryJournal.open(directory);
+//   Library library = journal.recover("City Central Library");  // snapshot + journal tail
+//   ... use library, every change is journaled ...
+//   journal.close();
+//
+// Group commit: transactions only enqueue their record. One writer thread appends everything
+// queued so far through a FileChannel and forces it to disk once for the whole group, so many
+// concurrent transactions share a single fsync instead of queueing behind each other.
+//
+// Checkpoints: every checkpointInterval records (or on a checkpoint() call) the segments written so
+// far are folded into a new snapshot on a background thread. The snapshot is built by replaying those
+// segments onto the previous snapshot, never by reading the live library, so it is exactly the state
+// after its sequence and no transaction waits for it. Recovery then replays at most about one interval.
+public class LibraryJournal implements AutoCloseable {
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 1_000_000;  // Records between automatic checkpoints
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final long SEGMENT_LIMIT = 256L << 20;   // Roll to a new segment after 256 MB
+    
+    private final Path directory;
+    private final boolean waitForSync;
+    
+    // Pending records - guarded by queueLock
+    private final Object queueLock = new Object();
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private long lastSequence;
+    private boolean closed;
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private long sinceCheckpoint;        // Records appended since the last checkpoint started
+    private boolean checkpointPending;   // An automatic checkpoint is queued or running
+    private IOException checkpointFailure;
+    
+    // Durability progress - guarded by durableLock
+    private final Object durableLock = new Object();
+    private long durableSequence;
+    private IOException failure;
+    
+    // Current segment - guarded by segmentLock
+    private final Object segmentLock = new Object();
+    private FileChannel segment;
+    private int segmentIndex;
+    private long segmentSize;
+    
+    private Thread writer;
+    private ExecutorService checkpointer;
+    private Library library;
+    private RecoveryReport lastRecovery;
+    
+    private LibraryJournal(Path directory, boolean waitForSync) {
+        this.directory = directory;
+        this.waitForSync = waitForSync;
+    }
+    
+    // Opens a journal directory. With waitForSync, a transaction returns only once its record is on disk.
+    public static LibraryJournal open(Path directory, boolean waitForSync) throws IOException {
+        Files.createDirectories(directory);
+        return new LibraryJournal(directory, waitForSync);
+    }
+    
+    public static LibraryJournal open(Path directory) throws IOException {
+        return open(directory, true);
+    }
+    
+    // Rebuilds the library from the last snapshot plus the journal tail, then starts journaling it
+    // Throws IOException, leaving the files as they are, if a record does not apply cleanly
+    public synchronized Library recover(String libraryName) throws IOException {
+        if (library != null) {
+            throw new IllegalStateException("Journal has already been recovered");
+        }
+        long start = System.nanoTime();
+        Library recovered = new Library(libraryName);
+        
+        long snapshotSequence = loadSnapshot(recovered);
+        int snapshotBooks = recovered.getTotalBooks();
+        int snapshotMembers = recovered.getTotalMembers();
+        
+        List<Path> segments = listSegments();
+        Replay replay = replay(segments, recovered, snapshotSequence);
+        
+        // Appends always go to a fresh segment, so a torn tail in an old one is never extended
+        this.lastSequence = replay.sequence;
+        this.durableSequence = replay.sequence;
+        this.sinceCheckpoint = replay.records;
+        this.segmentIndex = segments.isEmpty() ? 0 : segmentIndexOf(segments.get(segments.size() - 1));
+        openNextSegment();
+        this.writer = new Thread(this::writeLoop, "library-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.checkpointer = LibraryExecutors.newPlatformExecutor("library-journal-checkpoint", 1);
+        
+        this.library = recovered;
+        recovered.attachJournal(this);
+        this.lastRecovery = new RecoveryReport(snapshotSequence, snapshotBooks, snapshotMembers,
+                replay.records, replay.sequence, Duration.ofNanos(System.nanoTime() - start));
+        return recovered;
+    }
+    
+    public synchronized RecoveryReport getLastRecovery() {
+        return lastRecovery;
+    }
+    
+    // Records between automatic checkpoints; 0 leaves checkpoints to explicit checkpoint() calls
+    public void setCheckpointInterval(long records) {
+        if (records < 0) {
+            throw new IllegalArgumentException("Checkpoint interval cannot be negative");
+        }
+        synchronized (queueLock) {
+            checkpointInterval = records;
+        }
+    }
+    
+    // Folds every segment written so far into a new snapshot and deletes those segments
+    // Works from the files alone: the live library is not read, so transactions carry on meanwhile
+    public synchronized void checkpoint() throws IOException {
+        if (library == null) {
+            throw new IllegalStateException("Recover the journal before taking a checkpoint");
+        }
+        // Roll first: the older segments are then complete and hold a gap-free prefix of the journal
+        int firstKeptSegment;
+        synchronized (queueLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            sinceCheckpoint = 0;
+        }
+        synchronized (segmentLock) {
+            openNextSegment();
+            firstKeptSegment = segmentIndex;
+        }
+        List<Path> folded = new ArrayList<>();
+        for (Path path : listSegments()) {
+            if (segmentIndexOf(path) < firstKeptSegment) {
+                folded.add(path);
+            }
+        }
+        Library image = new Library("checkpoint");
+        long snapshotSequence = loadSnapshot(image);
+        Replay replay = replay(folded, image, snapshotSequence);
+        if (replay.sequence > snapshotSequence) {
+            writeSnapshot(image, replay.sequence);
+        }
+        for (Path path : folded) {
+            Files.deleteIfExists(path);
+        }
+    }
+    
+    // Called by Library after applying a change - returns the record's sequence number
+    long append(JournalRecord record) {
+        byte[] payload = record.encode(0);  // Encode outside the lock, patch the sequence in below
+        synchronized (queueLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            long sequence = ++lastSequence;
+            ByteBuffer.wrap(payload).putLong(0, sequence);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+            frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            pending.add(frame);
+            queueLock.notify();
+            if (checkpointInterval > 0 && ++sinceCheckpoint >= checkpointInterval && !checkpointPending) {
+                checkpointPending = true;
+                checkpointer.execute(this::checkpointInBackground);
+            }
+            return sequence;
+        }
+    }
+    
+    // Blocks until the record with the given sequence is on disk (no-op unless waitForSync)
+    void awaitDurable(long sequence) {
+        if (!waitForSync) {
+            return;
+        }
+        synchronized (durableLock) {
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal", e);
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed", failure);
+            }
+        }
+    }
+    
+    // Rethrows the failure of an automatic checkpoint, if one failed; the segments it would have
+    // folded are kept, so nothing is lost and the next checkpoint tries again
+    @Override
+    public void close() throws IOException {
+        synchronized (queueLock) {
+            closed = true;
+            queueLock.notify();
+        }
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+            try {
+                checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (segmentLock) {
+            if (segment != null) {
+                segment.close();
+            }
+        }
+        synchronized (queueLock) {
+            if (checkpointFailure != null) {
+                throw new IOException("Automatic checkpoint failed", checkpointFailure);
+            }
+        }
+    }
+    
+    private void checkpointInBackground() {
+        try {
+            synchronized (queueLock) {
+                if (closed) {
+                    return;  // Shutting down - the segments stay for the next recovery
+                }
+            }
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            synchronized (queueLock) {
+                checkpointFailure = e instanceof IOException io ? io : new IOException(e);
+            }
+        } finally {
+            synchronized (queueLock) {
+                checkpointPending = false;
+            }
+        }
+    }
+    
+    // Writer thread - drains everything queued so far and commits it with one force()
+    private void writeLoop() {
+        List<ByteBuffer> batch = new ArrayList<>();
+        while (true) {
+            long batchSequence;
+            synchronized (queueLock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;  // Closed and fully drained
+                }
+                batch.addAll(pending);
+                pending.clear();
+                batchSequence = lastSequence;
+            }
+            try {
+                synchronized (segmentLock) {
+                    ByteBuffer[] frames = batch.toArray(new ByteBuffer[0]);
+                    long remaining = 0;
+                    for (ByteBuffer frame : frames) {
+                        remaining += frame.remaining();
+                    }
+                    segmentSize += remaining;
+                    while (remaining > 0) {
+                        remaining -= segment.write(frames);
+                    }
+                    segment.force(false);
+                    if (segmentSize >= SEGMENT_LIMIT) {
+                        openNextSegment();
+                    }
+                }
+                synchronized (durableLock) {
+                    durableSequence = batchSequence;
+                    durableLock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (durableLock) {
+                    failure = e;
+                    durableLock.notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+        }
+    }
+    
+    // Frame layout: payload length (int), CRC32 of payload (int), payload
+    // Returns null at the end of the segment or at a torn/corrupt tail
+    private static ByteBuffer nextRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < 8) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            return null;
+        }
+        ByteBuffer payload = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+    
+    // Where a replay stopped: the last sequence applied and how many records that took
+    private static final class Replay {
+        long sequence;
+        long records;
+    }
+    
+    // Applies, in order, every record after the given sequence. Records up to it are already in the
+    // snapshot - the one case where a record is skipped. Anything else that does not apply, and any gap
+    // in the numbering, stops the replay with an IOException naming the record.
+    private static Replay replay(List<Path> segments, Library target, long after) throws IOException {
+        Replay replay = new Replay();
+        replay.sequence = after;
+        for (Path path : segments) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                ByteBuffer payload;
+                while ((payload = nextRecord(buffer)) != null) {
+                    long recordSequence = payload.getLong();
+                    if (recordSequence <= after) {
+                        continue;  // Already contained in the snapshot
+                    }
+                    if (recordSequence != replay.sequence + 1) {
+                        throw new IOException(String.format("Journal record @%d in %s follows @%d - records are missing",
+                                recordSequence, path.getFileName(), replay.sequence));
+                    }
+                    JournalRecord record = JournalRecord.decode(payload);
+                    try {
+                        record.applyTo(target);
+                    } catch (IllegalStateException | IllegalArgumentException e) {
+                        throw new IOException(String.format("Journal record @%d in %s cannot be replayed: %s (%s)",
+                                recordSequence, path.getFileName(), record, e.getMessage()), e);
+                    }
+                    replay.sequence = recordSequence;
+                    replay.records++;
+                }
+            }
+        }
+        return replay;
+    }
+    
+    private void openNextSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segmentIndex++;
+        Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+    
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+    
+    private static int segmentIndexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+    
+    // Written beside the old snapshot and moved over it, so a crash never leaves a torn snapshot behind
+    private void writeSnapshot(Library source, long sequence) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        LibrarySnapshot.write(source, sequence, temp);
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // Returns the sequence the snapshot was taken at, or 0 when there is no snapshot yet
+    private long loadSnapshot(Library target) throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        LibrarySnapshot snapshot = LibrarySnapshot.open(path);
+        snapshot.loadInto(target, true);
+        return snapshot.getSequence();
+    }
+}
@@ -0,0 +1,199 @@
+package LibraryManagement;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// LibraryLoadGenerator - Open-loop HTTP load against a LibraryHttpServer, with latency percentiles
+//
+// Usage (from code-examples):
+//   java LibraryManagement.LibraryLoadGenerator [--url=http://127.0.0.1:8080] [--rate=500,1000,2000] [--duration=10]
+//        [--warmup=2] [--books=10000] [--members=1000]
+//   -> without --url an embedded server with a sample catalog is started on a free localhost port
+//   -> each rate is measured in turn; the rate where p99 takes off is the capacity of the setup
+//
+// Open loop: requests are sent on a fixed schedule whatever the server does, and each latency is measured
+// from the moment the request was due, not from when it actually went out. A server that stalls therefore
+// shows up as the queueing delay its users would see, instead of quietly slowing the generator down
+// (coordinated omission). The mix is 40% checkout, 40% return of an earlier loan, 10% author search and
+// 10% availability counts; 404/409 are library answers, not errors, and are reported per status.
+public class LibraryLoadGenerator {
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int books;
+    private final int members;
+    private final Queue<String[]> openLoans = new ConcurrentLinkedQueue<>();  // {member, isbn}
+    private final SplittableRandom random = new SplittableRandom(42);        // Scheduler thread only
+    
+    // One run's results
+    public record Report(int rate, long sent, long completed, long failed, double seconds,
+                         Map<Integer, Long> statuses, long[] latenciesNanos) {
+        public double throughput() {
+            return completed / seconds;
+        }
+        
+        // Latency in milliseconds at the given percentile (0-100) of the completed requests
+        public double percentile(double percentile) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(0, Math.min(index, latenciesNanos.length - 1))] / 1e6;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("target %d req/s, sent %d, completed %d (%.0f req/s), failed %d, statuses %s%n"
+                            + "latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f",
+                    rate, sent, completed, throughput(), failed, statuses,
+                    percentile(50), percentile(90), percentile(99), percentile(99.9), percentile(100));
+        }
+    }
+    
+    public LibraryLoadGenerator(String baseUrl, int books, int members) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.books = books;
+        this.members = members;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        String[] rates = options.getOrDefault("rate", "500,1000,2000").split(",");
+        int seconds = Integer.parseInt(options.getOrDefault("duration", "10"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        int books = Integer.parseInt(options.getOrDefault("books", "10000"));
+        int members = Integer.parseInt(options.getOrDefault("members", "1000"));
+        
+        LibraryHttpServer embedded = null;
+        String url = options.get("url");
+        if (url == null) {
+            embedded = LibraryHttpServer.start(LibraryHttpServer.sampleLibrary(books, members), 0);
+            url = "http://127.0.0.1:" + embedded.getPort();
+            System.out.println("Embedded server on " + url + " (virtual threads: " + LibraryExecutors.hasVirtualThreads() + ")");
+        }
+        try {
+            LibraryLoadGenerator generator = new LibraryLoadGenerator(url, books, members);
+            for (String value : rates) {
+                int rate = Integer.parseInt(value.trim());
+                if (warmup > 0) {
+                    generator.run(rate, Duration.ofSeconds(warmup));
+                }
+                System.out.println("\n=== " + rate + " req/s for " + seconds + " s ===");
+                System.out.println(generator.run(rate, Duration.ofSeconds(seconds)));
+            }
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+    
+    // Sends rate requests per second for the given time, then waits for the stragglers
+    public Report run(int rate, Duration duration) throws InterruptedException {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Rate must be at least 1 request per second");
+        }
+        int total = (int) Math.min(Integer.MAX_VALUE - 8, rate * duration.toMillis() / 1000);
+        long intervalNanos = 1_000_000_000L / rate;
+        long[] latencies = new long[total];
+        Arrays.fill(latencies, -1);
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder failed = new LongAdder();
+        CountDownLatch outstanding = new CountDownLatch(total);
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int slot = i;
+            Request request = nextRequest();
+            client.sendAsync(request.http(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long latency = System.nanoTime() - due;  // From the schedule, not from the send
+                        if (failure != null) {
+                            failed.increment();
+                        } else {
+                            latencies[slot] = latency;
+                            statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                            if (response.statusCode() == 200 && request.loan() != null) {
+                                openLoans.add(request.loan());
+                            }
+                        }
+                        outstanding.countDown();
+                    });
+        }
+        outstanding.await(30, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        long[] completed = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        return new Report(rate, total, completed.length, failed.sum(), seconds, counts, completed);
+    }
+    
+    // Helper methods
+    // loan is the {member, isbn} a successful checkout opens, so a later request can return it
+    private record Request(HttpRequest http, String[] loan) {
+    }
+    
+    private Request nextRequest() {
+        int pick = random.nextInt(10);
+        if (pick < 4) {
+            String member = "M" + random.nextInt(members);
+            String isbn = "ISBN-" + random.nextInt(books);
+            return new Request(post("/checkout?member=" + member + "&isbn=" + isbn), new String[] {member, isbn});
+        }
+        if (pick < 8) {
+            String[] loan = openLoans.poll();
+            if (loan == null) {  // Nothing out yet - return something that was never lent, for a 409
+                loan = new String[] {"M" + random.nextInt(members), "ISBN-" + random.nextInt(books)};
+            }
+            return new Request(post("/return?member=" + loan[0] + "&isbn=" + loan[1]), null);
+        }
+        if (pick < 9) {
+            return new Request(get("/books?author=Author+" + random.nextInt(50)), null);
+        }
+        return new Request(get("/availability"), null);
+    }
+    
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+    
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+    }
+}
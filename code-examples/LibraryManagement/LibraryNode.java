@@ -0,0 +1,437 @@
+package LibraryManagement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// LibraryNode - One process of a library cluster, serving its partition of the ISBN space
+//
+// Usage:
+//   java LibraryManagement.LibraryNode <partition> <partitionCount> [port] [reservationLeaseMillis]
+//   -> prints "LISTENING <port>" once it accepts connections (port 0 picks a free one)
+//
+// The node keeps an ordinary Library with the books whose ISBN hashes to its partition. Members are
+// registered on every node, so a checkout is handled entirely by the node that owns the book. Each member
+// also has a home node that counts their loans across the whole cluster; the client reserves a slot there
+// before it checks a book out anywhere, so the borrow limit holds cluster-wide. A reservation is a lease:
+// if the client never confirms or cancels it - it crashed between the two steps - the slot frees itself
+// once the lease runs out. Confirmed loans are kept by ISBN, not as a bare count, so a repeated confirm
+// or release changes nothing, and RECONCILE_LOANS can reset them to what the book nodes really have lent.
+// State is in memory only.
+//
+// A request for a key this node does not own is answered with MISROUTED and the owning partition, so a
+// client with a stale or misordered node list can resend it there.
+//
+// One thread per client connection; Library does its own locking.
+public class LibraryNode implements AutoCloseable {
+    public static final long DEFAULT_RESERVATION_LEASE_MILLIS = 30_000;
+    
+    private final Library library;
+    private final int partition;
+    private final int partitionCount;
+    private final ServerSocket server;
+    private final long reservationLeaseMillis;
+    private final Map<String, LoanSlots> clusterLoans = new ConcurrentHashMap<>();  // Member ID -> loans anywhere
+    private final AtomicLong reservationIds = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    
+    // A home member's confirmed loans plus the reservations still waiting for their checkout
+    // Guarded by its own monitor
+    private static final class LoanSlots {
+        final Set<String> loans = new HashSet<>();         // Canonical ISBNs lent to the member, on any node
+        final Map<Long, Lease> leases = new HashMap<>();   // Reservation ID -> lease
+        long version;                                      // Bumped whenever loans changes
+        
+        int inUse(long now) {
+            leases.values().removeIf(lease -> lease.expiresAt() <= now);
+            return loans.size() + leases.size();
+        }
+    }
+    
+    private record Lease(String isbn, long expiresAt) {
+    }
+    
+    // Answered with MISROUTED instead of a library error
+    private static final class MisroutedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        final int owner;
+        
+        MisroutedException(int owner, String message) {
+            super(message);
+            this.owner = owner;
+        }
+    }
+    
+    private LibraryNode(int partition, int partitionCount, ServerSocket server, long reservationLeaseMillis) {
+        this.library = new Library("Partition " + partition + "/" + partitionCount);
+        this.partition = partition;
+        this.partitionCount = partitionCount;
+        this.server = server;
+        this.reservationLeaseMillis = reservationLeaseMillis;
+    }
+    
+    // Binds to the loopback interface and starts accepting on a background thread
+    public static LibraryNode start(int partition, int partitionCount, int port) throws IOException {
+        return start(partition, partitionCount, port, DEFAULT_RESERVATION_LEASE_MILLIS);
+    }
+    
+    public static LibraryNode start(int partition, int partitionCount, int port, long reservationLeaseMillis)
+            throws IOException {
+        if (partitionCount < 1 || partition < 0 || partition >= partitionCount) {
+            throw new IllegalArgumentException("Partition " + partition + " of " + partitionCount + " does not exist");
+        }
+        if (reservationLeaseMillis < 1) {
+            throw new IllegalArgumentException("Reservation lease must be positive");
+        }
+        ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        LibraryNode node = new LibraryNode(partition, partitionCount, server, reservationLeaseMillis);
+        Thread acceptor = new Thread(node::acceptLoop, "library-node-" + partition);
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return node;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: LibraryNode <partition> <partitionCount> [port] [reservationLeaseMillis]");
+            System.exit(2);
+        }
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        long lease = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_RESERVATION_LEASE_MILLIS;
+        try (LibraryNode node = start(Integer.parseInt(args[0]), Integer.parseInt(args[1]), port, lease)) {
+            System.out.println("LISTENING " + node.getPort());
+            System.out.flush();
+            node.awaitShutdown();
+        }
+    }
+    
+    // Getters
+    public int getPort() {
+        return server.getLocalPort();
+    }
+    
+    public int getPartition() {
+        return partition;
+    }
+    
+    public Library getLibrary() {
+        return library;
+    }
+    
+    // Returns once a client sent SHUTDOWN or close was called
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        server.close();
+        stopped.countDown();
+    }
+    
+    // Helper methods
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread connection = new Thread(() -> serve(socket), "library-node-" + partition + "-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            if (in.readInt() != ClusterProtocol.PROTOCOL) {
+                return;  // Not one of our clients
+            }
+            DataInputStream request;
+            while ((request = ClusterProtocol.readFrame(in)) != null) {
+                byte operation = request.readByte();
+                ClusterProtocol.Message response;
+                try {
+                    response = new ClusterProtocol.Message(ClusterProtocol.OK);
+                    handle(operation, request, response);
+                } catch (MisroutedException e) {
+                    response = new ClusterProtocol.Message(ClusterProtocol.MISROUTED);
+                    response.writeInt(e.owner);
+                    ClusterProtocol.writeString(response, e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    response = failure(ClusterProtocol.NOT_FOUND, e);
+                } catch (IllegalStateException e) {
+                    response = failure(ClusterProtocol.REJECTED, e);
+                } catch (RuntimeException e) {
+                    response = failure(ClusterProtocol.FAILED, e);
+                }
+                response.sendTo(out);
+                if (operation == ClusterProtocol.SHUTDOWN) {
+                    close();
+                    return;
+                }
+            }
+        } catch (SocketException e) {
+            // Client went away
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+        }
+    }
+    
+    private void handle(byte operation, DataInputStream in, ClusterProtocol.Message out) throws IOException {
+        switch (operation) {
+            case ClusterProtocol.ADD_BOOK -> {
+                Book book = ClusterProtocol.readBook(in);
+                requireOwned(book.getIsbn());
+                library.addBook(book);
+            }
+            case ClusterProtocol.REGISTER_MEMBER -> registerMember(ClusterProtocol.readMember(in), in.readBoolean());
+            case ClusterProtocol.CHECKOUT -> {
+                String memberId = ClusterProtocol.readString(in);
+                String isbn = ClusterProtocol.readString(in);
+                requireOwned(isbn);
+                library.checkoutBook(memberId, isbn);
+            }
+            case ClusterProtocol.RETURN -> {
+                String memberId = ClusterProtocol.readString(in);
+                String isbn = ClusterProtocol.readString(in);
+                requireOwned(isbn);
+                library.returnBook(memberId, isbn);
+            }
+            case ClusterProtocol.FIND_BOOK -> {
+                String isbn = ClusterProtocol.readString(in);
+                requireOwned(isbn);
+                Book book = library.findBookByIsbn(isbn);
+                out.writeBoolean(book != null);
+                if (book != null) {
+                    ClusterProtocol.writeBook(out, book);
+                }
+            }
+            case ClusterProtocol.FIND_BY_AUTHOR -> writeBooks(out, library.findBooksByAuthor(ClusterProtocol.readString(in)));
+            case ClusterProtocol.FIND_AVAILABLE -> findAvailable(ClusterProtocol.readString(in), in.readInt(), out);
+            case ClusterProtocol.RESERVE_LOAN ->
+                    out.writeLong(reserveLoan(ClusterProtocol.readString(in), ClusterProtocol.readString(in)));
+            case ClusterProtocol.CONFIRM_LOAN ->
+                    confirmLoan(ClusterProtocol.readString(in), in.readLong(), ClusterProtocol.readString(in));
+            case ClusterProtocol.CANCEL_RESERVATION -> cancelReservation(ClusterProtocol.readString(in), in.readLong());
+            case ClusterProtocol.RELEASE_LOAN -> releaseLoan(ClusterProtocol.readString(in), ClusterProtocol.readString(in));
+            case ClusterProtocol.LOAN_SLOTS -> loanSlots(ClusterProtocol.readString(in), out);
+            case ClusterProtocol.MEMBER_LOANS -> ClusterProtocol.writeStrings(out, memberLoans(ClusterProtocol.readString(in)));
+            case ClusterProtocol.RECONCILE_LOANS -> out.writeBoolean(reconcileLoans(ClusterProtocol.readString(in),
+                    in.readLong(), ClusterProtocol.readStrings(in)));
+            case ClusterProtocol.COUNTS -> {
+                out.writeInt(library.getTotalBooks());
+                out.writeInt(library.getTotalMembers());
+                out.writeInt(partition);
+                out.writeInt(partitionCount);
+            }
+            case ClusterProtocol.SHUTDOWN -> {
+                // Answered first, closed by serve
+            }
+            default -> throw new UnsupportedOperationException("Unknown operation " + operation);
+        }
+    }
+    
+    // A client retries registration on the nodes that did not answer; the ones that did already have the
+    // member, so a retry accepts an identical registration instead of failing the whole call
+    private void registerMember(Member member, boolean retry) {
+        try {
+            library.registerMember(member);
+        } catch (IllegalStateException e) {
+            Member existing = library.findMemberById(member.getMemberId());
+            if (!retry || existing == null || !sameRegistration(existing, member)) {
+                throw e;
+            }
+        }
+    }
+    
+    private static boolean sameRegistration(Member a, Member b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getEmail(), b.getEmail())
+                && a.getMaxBorrowLimit() == b.getMaxBorrowLimit();
+    }
+    
+    // Up to limit available books after the cursor, in ISBN order; the cursor for the next call is the
+    // canonical ISBN of the last book looked at, or null once the partition is exhausted
+    private void findAvailable(String afterIsbn, int limit, ClusterProtocol.Message out) throws IOException {
+        if (limit < 1 || limit > ClusterProtocol.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + ClusterProtocol.MAX_PAGE_SIZE);
+        }
+        List<Book> available = new ArrayList<>();
+        String cursor = afterIsbn;
+        do {
+            Page<Book> page = library.getBooksPage(cursor, limit - available.size());
+            for (Book book : page.items()) {
+                if (book.isAvailable()) {
+                    available.add(book);
+                }
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null && available.size() < limit);
+        writeBooks(out, available);
+        ClusterProtocol.writeString(out, cursor);
+    }
+    
+    // Cluster-wide borrow limit, counted on the member's home node. The slot is held for the lease only;
+    // CONFIRM_LOAN turns it into a loan once the checkout went through.
+    private long reserveLoan(String memberId, String isbn) {
+        requireHome(memberId);
+        Member member = library.findMemberById(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        if (isbn == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        String key = Isbn.normalize(isbn);
+        LoanSlots slots = clusterLoans.computeIfAbsent(memberId, id -> new LoanSlots());
+        synchronized (slots) {
+            if (slots.loans.contains(key)) {
+                throw new IllegalStateException("Book already borrowed by this member");
+            }
+            long now = System.currentTimeMillis();
+            if (slots.inUse(now) >= member.getMaxBorrowLimit()) {
+                throw new IllegalStateException("Member has reached borrow limit");
+            }
+            long reservation = reservationIds.incrementAndGet();
+            slots.leases.put(reservation, new Lease(key, now + reservationLeaseMillis));
+            return reservation;
+        }
+    }
+    
+    // The checkout happened, so the loan counts even if the lease ran out in the meantime
+    private void confirmLoan(String memberId, long reservation, String isbn) {
+        LoanSlots slots = loanSlotsOf(memberId);
+        if (isbn == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        synchronized (slots) {
+            slots.leases.remove(reservation);
+            if (slots.loans.add(Isbn.normalize(isbn))) {
+                slots.version++;
+            }
+        }
+    }
+    
+    private void cancelReservation(String memberId, long reservation) {
+        requireHome(memberId);
+        LoanSlots slots = clusterLoans.get(memberId);
+        if (slots != null) {
+            synchronized (slots) {
+                slots.leases.remove(reservation);
+            }
+        }
+    }
+    
+    private void releaseLoan(String memberId, String isbn) {
+        requireHome(memberId);
+        LoanSlots slots = clusterLoans.get(memberId);
+        if (slots != null && isbn != null) {
+            synchronized (slots) {
+                if (slots.loans.remove(Isbn.normalize(isbn))) {
+                    slots.version++;
+                }
+            }
+        }
+    }
+    
+    // Home-node state of the member - created on first use, as members are registered without it
+    private LoanSlots loanSlotsOf(String memberId) {
+        requireHome(memberId);
+        if (memberId == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        return clusterLoans.computeIfAbsent(memberId, id -> new LoanSlots());
+    }
+    
+    // The loans the home node counts, with the version RECONCILE_LOANS must still see to replace them
+    private void loanSlots(String memberId, ClusterProtocol.Message out) throws IOException {
+        LoanSlots slots = loanSlotsOf(memberId);
+        synchronized (slots) {
+            out.writeLong(slots.version);
+            ClusterProtocol.writeStrings(out, new ArrayList<>(slots.loans));
+        }
+    }
+    
+    // What this node's own library has lent to the member
+    private List<String> memberLoans(String memberId) {
+        Member member = memberId == null ? null : library.findMemberById(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        List<String> isbns = new ArrayList<>();
+        for (Book book : member.getBorrowedBooks()) {
+            isbns.add(book.getCanonicalIsbn());
+        }
+        return isbns;
+    }
+    
+    // Replaces the counted loans with the ones every node reported, unless a confirm or release arrived
+    // since the client read the version - then its reports may be stale and it has to start over.
+    // Reservations for a reported book are dropped too: their checkout is the one that happened.
+    private boolean reconcileLoans(String memberId, long version, List<String> lent) {
+        LoanSlots slots = loanSlotsOf(memberId);
+        synchronized (slots) {
+            if (slots.version != version) {
+                return false;
+            }
+            slots.loans.clear();
+            for (String isbn : lent) {
+                slots.loans.add(Isbn.normalize(isbn));
+            }
+            slots.leases.values().removeIf(lease -> slots.loans.contains(lease.isbn()));
+            slots.version++;
+            return true;
+        }
+    }
+    
+    // A misrouted request would silently create a second copy of the book on the wrong node
+    private void requireOwned(String isbn) {
+        int owner = isbn == null ? partition : ClusterProtocol.partitionOf(isbn, partitionCount);
+        if (owner != partition) {
+            throw new MisroutedException(owner, "ISBN " + isbn + " is not in partition " + partition);
+        }
+    }
+    
+    private void requireHome(String memberId) {
+        int home = memberId == null ? partition : ClusterProtocol.homeOf(memberId, partitionCount);
+        if (home != partition) {
+            throw new MisroutedException(home, "Member " + memberId + " is not homed on partition " + partition);
+        }
+    }
+    
+    private static void writeBooks(ClusterProtocol.Message out, List<Book> books) throws IOException {
+        out.writeInt(books.size());
+        for (Book book : books) {
+            ClusterProtocol.writeBook(out, book);
+        }
+    }
+    
+    private static ClusterProtocol.Message failure(byte status, RuntimeException e) throws IOException {
+        ClusterProtocol.Message response = new ClusterProtocol.Message(status);
+        ClusterProtocol.writeString(response, e.getMessage() != null ? e.getMessage() : e.toString());
+        return response;
+    }
+}
@@ -0,0 +1,198 @@
+package LibraryManagement;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// LibraryService - Asynchronous front end for a Library, for callers that must not block on it
+//
+// Each call returns at once with a CompletableFuture; the Library call itself runs on the service's
+// executor (virtual threads where the JVM has them, see LibraryExecutors). The library's own exceptions
+// complete the future exceptionally, unchanged.
+//
+// At most maxInFlight calls are accepted at a time. Beyond that a call is not queued: its future fails
+// straight away with RejectedExecutionException, so an overloaded caller learns about it immediately and
+// can shed or retry instead of piling up work. Callbacks attached to a future run on the thread that
+// completed it unless an async variant with an executor is used.
+public class LibraryService implements AutoCloseable {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
+    
+    private final Library library;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean closed;
+    
+    // Constructors
+    public LibraryService(Library library) {
+        this(library, DEFAULT_MAX_IN_FLIGHT);
+    }
+    
+    public LibraryService(Library library, int maxInFlight) {
+        this(library, maxInFlight, LibraryExecutors.newRequestExecutor("library-service"), true);
+    }
+    
+    // The executor stays the caller's: close does not shut it down
+    public LibraryService(Library library, int maxInFlight, ExecutorService executor) {
+        this(library, maxInFlight, executor, false);
+    }
+    
+    private LibraryService(Library library, int maxInFlight, ExecutorService executor, boolean ownsExecutor) {
+        if (library == null) {
+            throw new IllegalArgumentException("Library cannot be null");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("At least one request must be allowed in flight");
+        }
+        this.library = library;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+    
+    // Getters
+    public Library getLibrary() {
+        return library;
+    }
+    
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+    
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    // Transaction methods
+    public CompletableFuture<Void> checkoutBook(String memberId, String isbn) {
+        return submit(() -> {
+            library.checkoutBook(memberId, isbn);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Void> returnBook(String memberId, String isbn) {
+        return submit(() -> {
+            library.returnBook(memberId, isbn);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<List<LoanOutcome>> checkoutBooks(String memberId, List<String> isbns) {
+        return submit(() -> library.checkoutBooks(memberId, isbns));
+    }
+    
+    public CompletableFuture<List<LoanOutcome>> returnBooks(String memberId, List<String> isbns) {
+        return submit(() -> library.returnBooks(memberId, isbns));
+    }
+    
+    // Search methods
+    public CompletableFuture<Book> findBookByIsbn(String isbn) {
+        return submit(() -> library.findBookByIsbn(isbn));
+    }
+    
+    public CompletableFuture<List<Book>> findBooksByAuthor(String author) {
+        return submit(() -> library.findBooksByAuthor(author));
+    }
+    
+    public CompletableFuture<List<Book>> searchTitles(String query, int limit) {
+        return submit(() -> library.searchTitles(query, limit));
+    }
+    
+    public CompletableFuture<List<Book>> findAvailableBooks() {
+        return submit(library::findAvailableBooks);
+    }
+    
+    // Member management methods
+    public CompletableFuture<Void> registerMember(Member member) {
+        return submit(() -> {
+            library.registerMember(member);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Member> findMemberById(String memberId) {
+        return submit(() -> library.findMemberById(memberId));
+    }
+    
+    // Stops accepting calls and waits up to the timeout for the accepted ones; true if they all finished
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        closed = true;
+        if (!permits.tryAcquire(maxInFlight, timeout, unit)) {
+            return false;
+        }
+        permits.release(maxInFlight);
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+        return true;
+    }
+    
+    @Override
+    public void close() {
+        try {
+            shutdown(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("LibraryService{library='%s', inFlight=%d/%d, completed=%d, rejected=%d, virtualThreads=%s}",
+                library.getName(), getInFlight(), maxInFlight, getCompletedCount(), getRejectedCount(),
+                LibraryExecutors.hasVirtualThreads());
+    }
+    
+    // Helper methods
+    // The permit is taken before the task is queued and given back by the task itself, so a saturated
+    // service rejects without touching the executor, and a caller's callbacks never run while it is held
+    private <T> CompletableFuture<T> submit(Callable<T> call) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Library service is shut down"));
+        }
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Library service is saturated: " + maxInFlight + " requests in flight"));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T value;
+                try {
+                    value = call.call();
+                } catch (Throwable failure) {
+                    permits.release();
+                    completed.increment();
+                    result.completeExceptionally(failure);
+                    return;
+                }
+                permits.release();
+                completed.increment();
+                result.complete(value);
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Demo for LibraryService - tens of thousands of patron sessions against one Library, none holding a thread
+public class LibraryServiceDemo {
+    private static final int BOOKS = 5_000;
+    private static final int SESSIONS = 20_000;
+    private static final int LOANS_PER_SESSION = 5;
+    
+    public static void main(String[] args) throws Exception {
+        Library library = new Library("City Central Library");
+        for (int b = 0; b < BOOKS; b++) {
+            library.addBook(new Book("ISBN-" + b, "Title " + b, "Author " + (b % 100), 2000 + b % 25, 2));
+        }
+        System.out.println("Virtual threads: " + LibraryExecutors.hasVirtualThreads());
+        
+        try (LibraryService service = new LibraryService(library, 2_000)) {
+            // Registration through the service - a burst is retried whenever the service pushes back
+            List<CompletableFuture<Void>> registrations = new ArrayList<>();
+            for (int s = 0; s < SESSIONS; s++) {
+                Member member = new Member("P" + s, "Patron " + s, "patron" + s + "@example.com");
+                registrations.add(withRetry(() -> service.registerMember(member)));
+            }
+            CompletableFuture.allOf(registrations.toArray(CompletableFuture[]::new)).join();
+            System.out.println("Registered " + library.getTotalMembers() + " patrons, "
+                    + service.getRejectedCount() + " rejections retried");
+            
+            // Every session borrows and returns a few random books, one request at a time
+            System.out.println("\n=== " + SESSIONS + " concurrent sessions ===");
+            AtomicLong loans = new AtomicLong();
+            AtomicLong unavailable = new AtomicLong();
+            long started = System.nanoTime();
+            List<CompletableFuture<Void>> sessions = new ArrayList<>();
+            for (int s = 0; s < SESSIONS; s++) {
+                sessions.add(session(service, "P" + s, LOANS_PER_SESSION, loans, unavailable));
+            }
+            CompletableFuture.allOf(sessions.toArray(CompletableFuture[]::new)).join();
+            long elapsedNanos = System.nanoTime() - started;
+            System.out.printf("%d loans, %d books found taken, %.0f requests/s%n",
+                    loans.get(), unavailable.get(), service.getCompletedCount() * 1e9 / elapsedNanos);
+            System.out.println(service);
+            System.out.println("Copies on the shelf: " + library.getAvailableCopiesCount()
+                    + " of " + library.getTotalCopiesCount());
+            
+            // Errors arrive as the library's own exceptions
+            System.out.println("\n=== Failures ===");
+            try {
+                service.checkoutBook("P0", "NO-SUCH-ISBN").join();
+            } catch (CompletionException e) {
+                System.out.println("Unknown book: " + e.getCause());
+            }
+        }
+    }
+    
+    // Checkout, then return the same book; a taken book just moves the session on to its next loan
+    private static CompletableFuture<Void> session(LibraryService service, String memberId, int remaining,
+                                                   AtomicLong loans, AtomicLong unavailable) {
+        if (remaining == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String isbn = "ISBN-" + ThreadLocalRandom.current().nextInt(BOOKS);
+        return withRetry(() -> service.checkoutBook(memberId, isbn))
+                .thenCompose(loaned -> {
+                    loans.incrementAndGet();
+                    return withRetry(() -> service.returnBook(memberId, isbn));
+                })
+                .exceptionally(failure -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (!(cause instanceof IllegalStateException)) {
+                        throw new CompletionException(cause);
+                    }
+                    unavailable.incrementAndGet();
+                    return null;
+                })
+                .thenCompose(done -> session(service, memberId, remaining - 1, loans, unavailable));
+    }
+    
+    // Backs off for a moment whenever the service says it is saturated, without blocking a thread
+    private static <T> CompletableFuture<T> withRetry(Supplier<CompletableFuture<T>> call) {
+        return call.get().handle((value, failure) -> {
+            if (failure == null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            if (failure instanceof RejectedExecutionException) {
+                Executor later = CompletableFuture.delayedExecutor(
+                        1 + ThreadLocalRandom.current().nextInt(5), TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> null, later).thenCompose(ignored -> withRetry(call));
+            }
+            return CompletableFuture.<T>failedFuture(failure);
+        }).thenCompose(result -> result);
+    }
+}
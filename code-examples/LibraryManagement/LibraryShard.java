@@ -0,0 +1,234 @@
+package LibraryManagement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// One partition of a ShardedLibrary - its books, its members and a single thread that owns them.
+// Everything reaches the state through the mailbox, so the maps are plain HashMaps and nothing is locked.
+// Every method below except call and close runs on the shard thread.
+final class LibraryShard {
+    private final ExecutorService mailbox;
+    private final Map<String, Book> booksByIsbn = new HashMap<>();         // Canonical ISBN -> Book
+    private final Map<String, List<Book>> booksByAuthor = new HashMap<>(); // Case-insensitive author key
+    private final Map<String, Member> membersById = new HashMap<>();
+    private final Map<String, Integer> reservedLoans = new HashMap<>();    // Member ID -> cross-shard loans in flight
+    private final Map<String, Deque<ShardHold>> holdsByIsbn = new HashMap<>();  // Canonical ISBN -> waiting, oldest first
+    
+    LibraryShard(String name) {
+        this.mailbox = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Runs the task on the shard thread; the future completes there, exceptionally if the task threw
+    <T> CompletableFuture<T> call(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, mailbox);
+    }
+    
+    void close() throws InterruptedException {
+        mailbox.shutdown();  // Messages already queued are still processed
+        mailbox.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    
+    // Book side
+    Void addBook(Book book) {
+        if (booksByIsbn.putIfAbsent(book.getCanonicalIsbn(), book) != null) {
+            throw new IllegalStateException("Book already exists in library");
+        }
+        booksByAuthor.computeIfAbsent(Library.authorKey(book.getAuthor()), key -> new ArrayList<>()).add(book);
+        return null;
+    }
+    
+    // Only with every copy on the shelf; members still waiting for the book have their holds failed
+    Void removeBook(String isbn) {
+        Book book = requireBook(isbn);
+        if (book.getAvailableCopies() != book.getTotalCopies()) {
+            throw new IllegalStateException("Cannot remove book that is checked out");
+        }
+        booksByIsbn.remove(isbn);
+        List<Book> byAuthor = booksByAuthor.get(Library.authorKey(book.getAuthor()));
+        byAuthor.remove(book);
+        if (byAuthor.isEmpty()) {
+            booksByAuthor.remove(Library.authorKey(book.getAuthor()));
+        }
+        Deque<ShardHold> holds = holdsByIsbn.remove(isbn);
+        if (holds != null) {
+            for (ShardHold hold : holds) {
+                hold.fail(new IllegalStateException("Book removed from library"));
+            }
+        }
+        return null;
+    }
+    
+    Book findBook(String isbn) {
+        return booksByIsbn.get(isbn);
+    }
+    
+    Book requireBook(String isbn) {
+        Book book = booksByIsbn.get(isbn);
+        if (book == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        return book;
+    }
+    
+    List<Book> findBooksByAuthor(String authorKey) {
+        return List.copyOf(booksByAuthor.getOrDefault(authorKey, List.of()));
+    }
+    
+    Book takeCopy(String isbn) {
+        Book book = requireBook(isbn);
+        book.checkout();
+        return book;
+    }
+    
+    // The copy goes to the longest-waiting hold instead of the shelf; returns that hold, or null when
+    // nobody waits. The caller lends the copy to the hold's member and calls putBack again if that fails.
+    ShardHold putBack(Book book) {
+        Deque<ShardHold> queue = holdsByIsbn.get(book.getCanonicalIsbn());
+        while (queue != null && !queue.isEmpty()) {
+            ShardHold hold = queue.poll();
+            if (queue.isEmpty()) {
+                holdsByIsbn.remove(book.getCanonicalIsbn());
+            }
+            if (!hold.isDone()) {  // Cancelled ones are only waiting for their withdrawHold message
+                return hold;
+            }
+        }
+        book.returnBook();
+        return null;
+    }
+    
+    // Takes a copy now when one is free and nobody is waiting, else queues the hold; null when queued
+    Book takeCopyOrQueue(String isbn, ShardHold hold) {
+        Book book = requireBook(isbn);
+        Deque<ShardHold> queue = holdsByIsbn.get(isbn);
+        if (queue == null && book.isAvailable()) {
+            book.checkout();
+            return book;
+        }
+        if (queue != null) {
+            for (ShardHold waiting : queue) {
+                if (waiting.getMemberId().equals(hold.getMemberId()) && !waiting.isDone()) {
+                    throw new IllegalStateException("Member already has a hold on this book");
+                }
+            }
+        }
+        holdsByIsbn.computeIfAbsent(isbn, key -> new ArrayDeque<>()).add(hold);
+        return null;
+    }
+    
+    Void withdrawHold(ShardHold hold) {
+        Deque<ShardHold> queue = holdsByIsbn.get(hold.getIsbn());
+        if (queue != null && queue.remove(hold) && queue.isEmpty()) {
+            holdsByIsbn.remove(hold.getIsbn());
+        }
+        return null;
+    }
+    
+    ShardHold findHold(String isbn, String memberId) {
+        for (ShardHold hold : holdsByIsbn.getOrDefault(isbn, new ArrayDeque<>())) {
+            if (hold.getMemberId().equals(memberId) && !hold.isDone()) {
+                return hold;
+            }
+        }
+        return null;
+    }
+    
+    int holdCount(String isbn) {
+        int waiting = 0;
+        for (ShardHold hold : holdsByIsbn.getOrDefault(isbn, new ArrayDeque<>())) {
+            if (!hold.isDone()) {
+                waiting++;
+            }
+        }
+        return waiting;
+    }
+    
+    int bookCount() {
+        return booksByIsbn.size();
+    }
+    
+    // Member side
+    Void registerMember(Member member) {
+        if (membersById.putIfAbsent(member.getMemberId(), member) != null) {
+            throw new IllegalStateException("Member already registered");
+        }
+        return null;
+    }
+    
+    Member findMember(String memberId) {
+        return membersById.get(memberId);
+    }
+    
+    Member requireMember(String memberId) {
+        Member member = membersById.get(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        return member;
+    }
+    
+    // A hold is only queued for a member who could take the loan right now
+    Void checkCanBorrow(String memberId, Book book) {
+        Member member = requireMember(memberId);
+        if (member.getBorrowedCount() + reservedLoans.getOrDefault(memberId, 0) >= member.getMaxBorrowLimit()) {
+            throw new IllegalStateException("Member has reached borrow limit");
+        }
+        if (member.hasBorrowed(book)) {
+            throw new IllegalStateException("Book already borrowed by this member");
+        }
+        return null;
+    }
+    
+    // Holds a loan slot while the book's shard is asked for a copy, so loans in flight count against the limit
+    Member reserveLoan(String memberId) {
+        Member member = requireMember(memberId);
+        int reserved = reservedLoans.getOrDefault(memberId, 0);
+        if (member.getBorrowedCount() + reserved >= member.getMaxBorrowLimit()) {
+            throw new IllegalStateException("Member has reached borrow limit");
+        }
+        reservedLoans.put(memberId, reserved + 1);
+        return member;
+    }
+    
+    Void releaseLoan(Member member) {
+        reservedLoans.computeIfPresent(member.getMemberId(), (id, reserved) -> reserved == 1 ? null : reserved - 1);
+        return null;
+    }
+    
+    // Turns the reservation into the loan; on failure the reservation is gone and the copy must go back
+    Void confirmLoan(Member member, Book book) {
+        try {
+            member.recordLoan(book);
+        } finally {
+            releaseLoan(member);
+        }
+        return null;
+    }
+    
+    // Reserve and confirm in one message, for a copy the book's shard has already taken for this member
+    Void lend(String memberId, Book book) {
+        return confirmLoan(reserveLoan(memberId), book);
+    }
+    
+    Book endLoan(String memberId, Book book) {
+        requireMember(memberId).clearLoan(book);
+        return book;
+    }
+    
+    int memberCount() {
+        return membersById.size();
+    }
+}
@@ -0,0 +1,441 @@
+package LibraryManagement;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// LibrarySnapshot - Compact binary image of a Library: books, members and open loans
+//
+// Usage:
+//   library.exportSnapshot(path);
+//   LibrarySnapshot snapshot = LibrarySnapshot.open(path);     // maps the file, reads the header only
+//   Book book = snapshot.findBook("978-0132350884");           // decodes just that record
+//   Library restored = snapshot.toLibrary("City Central Library");
+//
+// Opening costs the same for ten books or ten million: the file is memory-mapped and nothing past
+// the header is touched until it is asked for. Books and members are sorted by key and reached
+// through fixed-width offset tables, so a lookup is a binary search over the mapping. Strings are
+// stored once in a dictionary and numbers as varints, which keeps the file small and cheap to map.
+//
+// Layout (big-endian):
+//   header          magic, version, sequence, taken-at, four counts, three section offsets
+//   string index    int offset per string         -> string data: varint length, UTF-8 bytes
+//   book index      int offset per book, by ISBN  -> book records, each led by its canonical ISBN
+//   member index    int offset per member, by ID  -> member records with their loans
+// String references are dictionary code + 1, so 0 stands for null. A single mapping is limited to
+// 2 GB, and so is the file. Version 2 starts each book record with the canonical ISBN the index is
+// sorted by, then the ISBN as entered (0 when they are the same), so a lookup never re-normalizes;
+// version 1 files, which hold only the ISBN as entered, are still read.
+public final class LibrarySnapshot {
+    private static final int MAGIC = 0x4C534E50;   // "LSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    
+    private final Path file;
+    private final ByteBuffer data;
+    private final int version;
+    private final long sequence;
+    private final long takenAtMillis;
+    private final int stringCount;
+    private final int bookCount;
+    private final int memberCount;
+    private final int loanCount;
+    private final int stringIndex;
+    private final int bookIndex;
+    private final int memberIndex;
+    
+    private LibrarySnapshot(Path file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a library snapshot: " + file);
+        }
+        this.version = data.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + file);
+        }
+        this.sequence = data.getLong(8);
+        this.takenAtMillis = data.getLong(16);
+        this.stringCount = data.getInt(24);
+        this.bookCount = data.getInt(28);
+        this.memberCount = data.getInt(32);
+        this.loanCount = data.getInt(36);
+        this.stringIndex = data.getInt(40);
+        this.bookIndex = data.getInt(44);
+        this.memberIndex = data.getInt(48);
+        // Only the offset tables are bounds-checked here; checking every record would make open O(n)
+        checkTable(stringIndex, stringCount);
+        checkTable(bookIndex, bookCount);
+        checkTable(memberIndex, memberCount);
+    }
+    
+    // Maps the file; nothing but the header is read until a lookup asks for it
+    public static LibrarySnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new LibrarySnapshot(file, data);  // The mapping stays valid after the channel is closed
+        }
+    }
+    
+    // Getters
+    public Path getFile() {
+        return file;
+    }
+    
+    public int getVersion() {
+        return version;
+    }
+    
+    // Journal sequence the snapshot was taken at, 0 for a plain export
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public Instant getTakenAt() {
+        return Instant.ofEpochMilli(takenAtMillis);
+    }
+    
+    public int getBookCount() {
+        return bookCount;
+    }
+    
+    public int getMemberCount() {
+        return memberCount;
+    }
+    
+    public int getLoanCount() {
+        return loanCount;
+    }
+    
+    // Lazy lookups - each returns a detached copy decoded straight from the mapping
+    public Book findBook(String isbn) {
+        int row = search(bookIndex, bookCount, Isbn.normalize(isbn), true);
+        if (row < 0) {
+            return null;
+        }
+        Cursor cursor = new Cursor(data.getInt(bookIndex + row * 4));
+        Book book = readBook(cursor);
+        for (int onLoan = book.getTotalCopies() - (int) cursor.varint(); onLoan > 0; onLoan--) {
+            book.checkout();  // Available copies as they were when the snapshot was taken
+        }
+        return book;
+    }
+    
+    public Member findMember(String memberId) {
+        int row = search(memberIndex, memberCount, memberId, false);
+        return row < 0 ? null : readMember(new Cursor(data.getInt(memberIndex + row * 4)), null);
+    }
+    
+    // Open loans of the member, in the order they were borrowed
+    public List<Loan> getLoans(String memberId) {
+        int row = search(memberIndex, memberCount, memberId, false);
+        if (row < 0) {
+            return List.of();
+        }
+        List<Loan> loans = new ArrayList<>();
+        readMember(new Cursor(data.getInt(memberIndex + row * 4)), loans);
+        return loans;
+    }
+    
+    // Full import - decodes every record into a new, fully indexed Library
+    public Library toLibrary(String libraryName) {
+        Library library = new Library(libraryName);
+        loadInto(library, false);
+        return library;
+    }
+    
+    // Loans are reopened through the normal checkout path, so copies, due dates and statistics line up.
+    // A plain export of a library that changed while it was written can hold a loan that no longer fits,
+    // and such a loan is dropped; a journal checkpoint is exact (exact = true), and there it is an error.
+    void loadInto(Library target, boolean exact) {
+        List<Book> books = new ArrayList<>(Math.min(bookCount, 1 << 16));
+        for (int row = 0; row < bookCount; row++) {
+            books.add(readBook(new Cursor(data.getInt(bookIndex + row * 4))));
+            if (books.size() == 1 << 16 || row == bookCount - 1) {
+                target.addBooks(books);
+                books.clear();
+            }
+        }
+        List<Loan> loans = new ArrayList<>();
+        for (int row = 0; row < memberCount; row++) {
+            target.registerMember(readMember(new Cursor(data.getInt(memberIndex + row * 4)), loans));
+        }
+        for (Loan loan : loans) {
+            JournalRecord.BookCheckedOut checkout = new JournalRecord.BookCheckedOut(
+                    loan.memberId(), loan.isbn(), loan.dueAtMillis());
+            try {
+                checkout.applyTo(target);
+            } catch (IllegalStateException | IllegalArgumentException inconsistent) {
+                if (exact) {
+                    throw inconsistent;
+                }
+                // Taken from a library that changed while it was written - the loan did not survive
+            }
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("LibrarySnapshot{file=%s, version=%d, books=%d, members=%d, loans=%d, takenAt=%s}",
+                file.getFileName(), version, bookCount, memberCount, loanCount, getTakenAt());
+    }
+    
+    // Writing - the lists come from the library's ISBN / member ID ordered listings, so they are
+    // already sorted. A library that is being changed meanwhile gives a fuzzy but readable image.
+    public static void write(Library source, Path file) throws IOException {
+        write(source, 0, file);
+    }
+    
+    static void write(Library source, long sequence, Path file) throws IOException {
+        List<Book> books = source.getBooks();
+        List<Member> members = source.getMembers();
+        StringDictionary strings = new StringDictionary();
+        
+        Encoder bookRecords = new Encoder();
+        int[] bookOffsets = new int[books.size()];
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            bookOffsets[i] = bookRecords.size();
+            String key = book.getCanonicalIsbn();
+            bookRecords.varint(reference(strings, key));
+            bookRecords.varint(book.getIsbn().equals(key) ? 0 : reference(strings, book.getIsbn()));
+            bookRecords.varint(reference(strings, book.getTitle()));
+            bookRecords.varint(reference(strings, book.getAuthor()));
+            bookRecords.varint(zigZag(book.getYearPublished()));
+            bookRecords.varint(book.getTotalCopies());
+            bookRecords.varint(book.getAvailableCopies());
+        }
+        
+        Encoder memberRecords = new Encoder();
+        int[] memberOffsets = new int[members.size()];
+        int loanCount = 0;
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            memberOffsets[i] = memberRecords.size();
+            memberRecords.varint(reference(strings, member.getMemberId()));
+            memberRecords.varint(reference(strings, member.getName()));
+            memberRecords.varint(reference(strings, member.getEmail()));
+            memberRecords.varint(member.getMaxBorrowLimit());
+            List<Book> borrowed = member.getBorrowedBooks();
+            memberRecords.varint(borrowed.size());
+            for (Book book : borrowed) {
+                Loan loan = source.findLoan(member.getMemberId(), book.getIsbn());
+                memberRecords.varint(reference(strings, book.getIsbn()));
+                memberRecords.varint(loan != null ? loan.dueAtMillis() : 0);  // 0 - due date assigned on load
+            }
+            loanCount += borrowed.size();
+        }
+        
+        Encoder stringData = new Encoder();
+        int[] stringOffsets = new int[strings.size()];
+        for (int code = 0; code < strings.size(); code++) {
+            byte[] utf8 = strings.decode(code).getBytes(StandardCharsets.UTF_8);
+            stringOffsets[code] = stringData.size();
+            stringData.varint(utf8.length);
+            stringData.bytes(utf8, utf8.length);
+        }
+        
+        long stringIndex = HEADER_SIZE;
+        long bookIndex = stringIndex + 4L * stringOffsets.length + stringData.size();
+        long memberIndex = bookIndex + 4L * bookOffsets.length + bookRecords.size();
+        long end = memberIndex + 4L * memberOffsets.length + memberRecords.size();
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Library too large for a snapshot (" + end + " bytes)");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(channel), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(strings.size());
+            out.writeInt(books.size());
+            out.writeInt(members.size());
+            out.writeInt(loanCount);
+            out.writeInt((int) stringIndex);
+            out.writeInt((int) bookIndex);
+            out.writeInt((int) memberIndex);
+            out.write(new byte[HEADER_SIZE - 52]);  // Reserved
+            writeTable(out, stringOffsets, (int) stringIndex + 4 * stringOffsets.length);
+            stringData.writeTo(out);
+            writeTable(out, bookOffsets, (int) bookIndex + 4 * bookOffsets.length);
+            bookRecords.writeTo(out);
+            writeTable(out, memberOffsets, (int) memberIndex + 4 * memberOffsets.length);
+            memberRecords.writeTo(out);
+            out.flush();
+            channel.force(true);
+        }
+    }
+    
+    // Helper methods
+    private Book readBook(Cursor cursor) {
+        String isbn = cursor.string();
+        if (version >= 2) {
+            String entered = cursor.string();
+            isbn = entered != null ? entered : isbn;
+        }
+        String title = cursor.string();
+        String author = cursor.string();
+        int yearPublished = unZigZag(cursor.varint());
+        int copies = (int) cursor.varint();
+        return new Book(isbn, title, author, yearPublished, copies);
+    }
+    
+    // Collects the member's loans into loans when it is not null
+    private Member readMember(Cursor cursor, List<Loan> loans) {
+        Member member = new Member(cursor.string(), cursor.string(), cursor.string());
+        member.setMaxBorrowLimit((int) cursor.varint());
+        if (loans != null) {
+            for (long count = cursor.varint(); count > 0; count--) {
+                loans.add(new Loan(member.getMemberId(), cursor.string(), cursor.varint()));
+            }
+        }
+        return member;
+    }
+    
+    // Binary search of a key-sorted table whose records start with their key; -1 when absent
+    // ISBNs are compared in canonical spelling, the order the library lists its books in - stored that
+    // way since version 2, normalized per probe for version 1 files
+    private int search(int table, int count, String key, boolean isbnKeys) {
+        if (key == null) {
+            return -1;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            String stored = new Cursor(data.getInt(table + middle * 4)).string();
+            int compared = (isbnKeys && version < 2 ? Isbn.normalize(stored) : stored).compareTo(key);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+    
+    private String string(long reference) {
+        if (reference == 0) {
+            return null;
+        }
+        if (reference > stringCount) {
+            throw new IllegalStateException("Corrupt snapshot: string reference " + reference + " in " + file);
+        }
+        Cursor cursor = new Cursor(data.getInt(stringIndex + (int) (reference - 1) * 4));
+        int length = (int) cursor.varint();
+        byte[] utf8 = new byte[length];
+        data.get(cursor.position, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+    
+    private void checkTable(int offset, int count) throws IOException {
+        if (count < 0 || offset < HEADER_SIZE || offset + 4L * count > data.capacity()) {
+            throw new IOException("Corrupt snapshot header: " + file);
+        }
+    }
+    
+    private static long reference(StringDictionary strings, String value) {
+        return value == null ? 0 : strings.encode(value) + 1L;
+    }
+    
+    private static long zigZag(int value) {
+        return Integer.toUnsignedLong((value << 1) ^ (value >> 31));
+    }
+    
+    private static int unZigZag(long encoded) {
+        int value = (int) encoded;
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    // Offsets are stored absolute, so a lookup needs no section arithmetic
+    private static void writeTable(DataOutputStream out, int[] offsets, int base) throws IOException {
+        for (int offset : offsets) {
+            out.writeInt(base + offset);
+        }
+    }
+    
+    // Reads varints and string references from one record of the mapping
+    private final class Cursor {
+        private int position;
+        
+        Cursor(int position) {
+            this.position = position;
+        }
+        
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Corrupt snapshot: varint too long in " + file);
+        }
+        
+        String string() {
+            return LibrarySnapshot.this.string(varint());
+        }
+    }
+    
+    // Growable byte array for one section, written out once its size is known
+    private static final class Encoder {
+        private byte[] bytes = new byte[1024];
+        private int size;
+        
+        int size() {
+            return size;
+        }
+        
+        // 7 bits per byte, low bits first; the high bit marks that another byte follows
+        void varint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+        
+        void bytes(byte[] source, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+        
+        void writeTo(DataOutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+        
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                long capacity = Math.max((long) bytes.length * 2, (long) size + extra);
+                if (capacity > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Snapshot section larger than 2 GB");
+                }
+                bytes = Arrays.copyOf(bytes, (int) capacity);
+            }
+        }
+    }
+}
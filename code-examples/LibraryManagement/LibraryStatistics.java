@@ -0,0 +1,205 @@
+package LibraryManagement;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Live aggregates of a Library - updated by every mutation, so reports never scan the catalog
+//
+// Every counter is a LongAdder, so concurrent mutations add into separate cells instead of one
+// contended word, and each getter is one map lookup. Nothing is locked.
+//
+// Snapshots are still consistent - every one shows the statistics between whole changes, so a checkout
+// is never in the copy counts but missing from the loans. Each change runs inside an update section that
+// counts updatesStarted on entry and updatesFinished on exit. A reader sums updatesFinished, reads, then
+// sums updatesStarted: both only grow and started never trails finished, so if the two sums are equal no
+// section was open when the read began and none opened before it ended. Otherwise the read is retried.
+// A section is a handful of adds, so under load a retry soon lands between them; writers never wait.
+// Tallies are dropped when their last book leaves, so the maps only hold authors and decades in stock.
+public final class LibraryStatistics {
+    private static final int SPINS_BEFORE_YIELD = 64;  // Failed reads before giving the writers the CPU
+    
+    private final Clock clock;
+    private final Tally catalog = new Tally();
+    private final Map<String, Tally> byAuthor = new ConcurrentHashMap<>();   // Library.authorKey -> counts
+    private final Map<Integer, Tally> byDecade = new ConcurrentHashMap<>();
+    private final Map<Book, Tally[]> tallies = new ConcurrentHashMap<>();   // Book -> {author, decade}
+    private final LongAdder[] loansByTier = new LongAdder[MemberTier.values().length];
+    private final LongAdder updatesStarted = new LongAdder();
+    private final LongAdder updatesFinished = new LongAdder();
+    
+    // Three counters for one aggregate
+    private static final class Tally {
+        int members;  // Books counted here - changed only inside the map's compute for this key
+        final LongAdder books = new LongAdder();
+        final LongAdder copies = new LongAdder();
+        final LongAdder availableCopies = new LongAdder();
+        
+        void add(long bookDelta, long copyDelta, long availableDelta) {
+            if (bookDelta != 0) {
+                books.add(bookDelta);
+            }
+            if (copyDelta != 0) {
+                copies.add(copyDelta);
+            }
+            if (availableDelta != 0) {
+                availableCopies.add(availableDelta);
+            }
+        }
+        
+        CatalogCounts toCounts() {
+            return new CatalogCounts(books.sum(), copies.sum(), availableCopies.sum());
+        }
+    }
+    
+    LibraryStatistics(Clock clock) {
+        this.clock = clock;
+        for (int tier = 0; tier < loansByTier.length; tier++) {
+            loansByTier[tier] = new LongAdder();
+        }
+    }
+    
+    // Getters - O(1), each as of one moment between changes
+    public CatalogCounts getCatalog() {
+        return consistently(catalog::toCounts);
+    }
+    
+    public CatalogCounts getAuthor(String author) {
+        String key = Library.authorKey(author);
+        return consistently(() -> {
+            Tally tally = byAuthor.get(key);
+            return tally == null ? CatalogCounts.EMPTY : tally.toCounts();
+        });
+    }
+    
+    public CatalogCounts getDecade(int decade) {
+        int key = Library.decadeOf(decade);
+        return consistently(() -> {
+            Tally tally = byDecade.get(key);
+            return tally == null ? CatalogCounts.EMPTY : tally.toCounts();
+        });
+    }
+    
+    public long getLoans(MemberTier tier) {
+        return loansByTier[tier.ordinal()].sum();
+    }
+    
+    // All aggregates as of one moment between changes, without stopping writers - O(authors + decades)
+    public StatisticsSnapshot snapshot() {
+        Instant takenAt = clock.instant();
+        return consistently(() -> {
+            Map<String, CatalogCounts> authors = new HashMap<>();
+            byAuthor.forEach((author, tally) -> authors.put(author, tally.toCounts()));
+            SortedMap<Integer, CatalogCounts> decades = new TreeMap<>();
+            byDecade.forEach((decade, tally) -> decades.put(decade, tally.toCounts()));
+            Map<MemberTier, Long> loans = new EnumMap<>(MemberTier.class);
+            for (MemberTier tier : MemberTier.values()) {
+                loans.put(tier, loansByTier[tier.ordinal()].sum());
+            }
+            return new StatisticsSnapshot(takenAt, catalog.toCounts(), Collections.unmodifiableMap(authors),
+                    Collections.unmodifiableSortedMap(decades), Collections.unmodifiableMap(loans));
+        });
+    }
+    
+    // Runs read until no update section overlapped it - see the class comment
+    private <T> T consistently(Supplier<T> read) {
+        for (int attempt = 1; ; attempt++) {
+            long finished = updatesFinished.sum();
+            T value = read.get();
+            if (updatesStarted.sum() == finished) {
+                return value;
+            }
+            if (attempt % SPINS_BEFORE_YIELD == 0) {
+                Thread.yield();  // A writer may be descheduled mid-section
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+    
+    // Library side - called under the book's ISBN lock; the updates never lock
+    
+    // Brackets a change that touches several aggregates, e.g. a checkout's copies and its loan, so
+    // readers see all of it or none of it. Sections nest; always pair with endUpdate in a finally.
+    void beginUpdate() {
+        updatesStarted.increment();
+    }
+    
+    void endUpdate() {
+        updatesFinished.increment();
+    }
+    
+    void bookAdded(Book book) {
+        beginUpdate();
+        try {
+            Tally author = byAuthor.compute(Library.authorKey(book.getAuthor()), LibraryStatistics::join);
+            Tally decade = byDecade.compute(Library.decadeOf(book.getYearPublished()), LibraryStatistics::join);
+            tallies.put(book, new Tally[] {author, decade});
+            add(book, 1, book.getTotalCopies(), book.getAvailableCopies());
+        } finally {
+            endUpdate();
+        }
+    }
+    
+    void bookRemoved(Book book) {
+        beginUpdate();
+        try {
+            add(book, -1, -book.getTotalCopies(), -book.getAvailableCopies());
+            if (tallies.remove(book) != null) {
+                byAuthor.computeIfPresent(Library.authorKey(book.getAuthor()), LibraryStatistics::leave);
+                byDecade.computeIfPresent(Library.decadeOf(book.getYearPublished()), LibraryStatistics::leave);
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+    
+    // From the availability listener, under the book's lock
+    void copiesChanged(Book book, int availableDelta, int totalDelta) {
+        beginUpdate();
+        try {
+            add(book, 0, totalDelta, availableDelta);
+        } finally {
+            endUpdate();
+        }
+    }
+    
+    // Inside the section that moved the copy, so loans and loaned copies always agree
+    void loanOpened(MemberTier tier) {
+        loansByTier[tier.ordinal()].increment();
+    }
+    
+    void loanClosed(MemberTier tier) {
+        loansByTier[tier.ordinal()].decrement();
+    }
+    
+    // compute callbacks - atomic per key, so a tally is never dropped while a book is joining it
+    private static <K> Tally join(K key, Tally tally) {
+        Tally joined = tally != null ? tally : new Tally();
+        joined.members++;
+        return joined;
+    }
+    
+    private static <K> Tally leave(K key, Tally tally) {
+        return --tally.members == 0 ? null : tally;
+    }
+    
+    private void add(Book book, long bookDelta, long copyDelta, long availableDelta) {
+        Tally[] bookTallies = tallies.get(book);
+        if (bookTallies == null) {
+            return;  // Not (or no longer) in the catalog
+        }
+        catalog.add(bookDelta, copyDelta, availableDelta);
+        for (Tally tally : bookTallies) {
+            tally.add(bookDelta, copyDelta, availableDelta);
+        }
+    }
+}
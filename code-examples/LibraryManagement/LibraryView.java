@@ -0,0 +1,233 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// LibraryView - The catalog and its copy counts as of one moment, while the library keeps changing
+//
+// Opening a view pins the library's current version, and every answer is about that version: a book
+// checked out afterwards is still available here, a book added afterwards is not listed, and a book
+// removed afterwards still is. Writers never wait for a view; each book just keeps the older states
+// of its copies for as long as an open view may ask for them.
+//
+// Only copy counts and catalog membership are versioned - members and loans are read live.
+// Close the view when the report is done. A view may be shared between threads.
+public final class LibraryView implements AutoCloseable {
+    private final Library library;
+    private final VersionClock clock;
+    private final long pinned;
+    private final long version;
+    private volatile boolean closed;
+    private Catalog catalog;  // Built by the first catalog-wide query, guarded by this
+    
+    // Every book visible at the view's version, in ISBN order, with its packed copies
+    private record Catalog(List<Book> books, long[] copies) {
+    }
+    
+    LibraryView(Library library, VersionClock clock) {
+        this.library = library;
+        this.clock = clock;
+        this.pinned = clock.pin();
+        this.version = clock.current();  // Read after pinning - see VersionClock.commit
+    }
+    
+    // Getters
+    public long getVersion() {
+        return version;
+    }
+    
+    public boolean contains(Book book) {
+        return copiesOf(book) != VersionClock.ABSENT;
+    }
+    
+    // Zero for a book that is not in the catalog at this version
+    public int getAvailableCopies(Book book) {
+        long copies = copiesOf(book);
+        return copies == VersionClock.ABSENT ? 0 : Book.availableOf(copies);
+    }
+    
+    public int getTotalCopies(Book book) {
+        long copies = copiesOf(book);
+        return copies == VersionClock.ABSENT ? 0 : Book.totalOf(copies);
+    }
+    
+    public boolean isAvailable(Book book) {
+        return getAvailableCopies(book) > 0;
+    }
+    
+    // Search methods
+    public Book findBookByIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        Book book = library.findBookByIsbn(isbn);
+        if (book != null && contains(book)) {
+            return book;
+        }
+        String key = Isbn.normalize(isbn);
+        for (Book retired : clock.retiredBooks()) {
+            if (retired.getCanonicalIsbn().equals(key) && contains(retired)) {
+                return retired;
+            }
+        }
+        return null;
+    }
+    
+    public List<Book> findBooksByAuthor(String author) {
+        if (author == null) {
+            return new ArrayList<>();
+        }
+        List<Book> books = visible(library.catalogByAuthor(author));
+        String key = Library.authorKey(author);
+        List<Book> retired = new ArrayList<>();
+        for (Book book : clock.retiredBooks()) {
+            if (Library.authorKey(book.getAuthor()).equals(key)) {
+                retired.add(book);
+            }
+        }
+        return withRetired(books, retired);
+    }
+    
+    public List<Book> getBooks() {
+        return catalog().books();
+    }
+    
+    public List<Book> findAvailableBooks() {
+        Catalog current = catalog();
+        List<Book> available = new ArrayList<>();
+        for (int i = 0; i < current.copies().length; i++) {
+            if (Book.availableOf(current.copies()[i]) > 0) {
+                available.add(current.books().get(i));
+            }
+        }
+        return available;
+    }
+    
+    // Reporting methods - one pass over the catalog, shared by all of them
+    public int getTotalBooks() {
+        return catalog().books().size();
+    }
+    
+    public int getAvailableBooksCount() {
+        int count = 0;
+        for (long copies : catalog().copies()) {
+            if (Book.availableOf(copies) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    public long getTotalCopiesCount() {
+        long count = 0;
+        for (long copies : catalog().copies()) {
+            count += Book.totalOf(copies);
+        }
+        return count;
+    }
+    
+    public long getAvailableCopiesCount() {
+        long count = 0;
+        for (long copies : catalog().copies()) {
+            count += Book.availableOf(copies);
+        }
+        return count;
+    }
+    
+    // Lets writers drop the states this view kept alive; using the view afterwards fails
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        clock.unpin(pinned);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("LibraryView{library='%s', version=%d, open=%s}", library.getName(), version, !closed);
+    }
+    
+    // Helper methods
+    private long copiesOf(Book book) {
+        requireOpen();
+        return book == null ? VersionClock.ABSENT : book.copiesAt(version);
+    }
+    
+    private void requireOpen() {
+        if (closed) {
+            throw new IllegalStateException("View is closed");
+        }
+    }
+    
+    private List<Book> visible(Iterable<Book> candidates) {
+        List<Book> books = new ArrayList<>();
+        for (Book book : candidates) {
+            if (contains(book)) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+    
+    // Adds the retired books this view still sees; one may also still be in the live index
+    private List<Book> withRetired(List<Book> books, Iterable<Book> retired) {
+        Set<Book> seen = null;
+        for (Book book : retired) {
+            if (!contains(book)) {
+                continue;
+            }
+            if (seen == null) {
+                seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                seen.addAll(books);
+            }
+            if (seen.add(book)) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+    
+    // One pass over the shared book listing - books added later are filtered out, books removed later
+    // come from the clock. The listing is current as of the view's version: it is invalidated before a
+    // new book is numbered.
+    private synchronized Catalog catalog() {
+        requireOpen();
+        if (catalog != null) {
+            return catalog;
+        }
+        List<Book> books = new ArrayList<>();
+        long[] copies = new long[64];
+        for (Book book : library.getBooks()) {
+            long state = book.copiesAt(version);
+            if (state != VersionClock.ABSENT) {
+                if (books.size() == copies.length) {
+                    copies = Arrays.copyOf(copies, copies.length * 2);
+                }
+                copies[books.size()] = state;
+                books.add(book);
+            }
+        }
+        int live = books.size();
+        books = withRetired(books, clock.retiredBooks());
+        if (books.size() > live) {  // Rare: a book was removed while the view is open
+            books.sort(Comparator.comparing(Book::getCanonicalIsbn));
+            copies = new long[books.size()];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = books.get(i).copiesAt(version);
+            }
+        } else {
+            copies = Arrays.copyOf(copies, live);
+        }
+        catalog = new Catalog(Collections.unmodifiableList(books), copies);
+        return catalog;
+    }
+}
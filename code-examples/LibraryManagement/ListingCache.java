@@ -0,0 +1,35 @@
+package LibraryManagement;
+
+import java.util.List;
+import java.util.Map;
+
+// Caches an unmodifiable copy of a map's values until the owner reports a change
+final class ListingCache<T> {
+    private final Map<String, T> source;
+    private volatile long version;          // Bumped after every change to source
+    private volatile Snapshot<T> snapshot;  // Copy taken at a given version
+    
+    private record Snapshot<T>(long version, List<T> items) {
+    }
+    
+    ListingCache(Map<String, T> source) {
+        this.source = source;
+    }
+    
+    List<T> snapshot() {
+        long current = version;
+        Snapshot<T> cached = snapshot;
+        if (cached != null && cached.version() == current) {
+            return cached.items();
+        }
+        // Read the version before copying: a change made during the copy leaves this snapshot stale
+        List<T> items = List.copyOf(source.values());
+        snapshot = new Snapshot<>(current, items);
+        return items;
+    }
+    
+    // Called by the owner after source has changed
+    synchronized void invalidate() {
+        version++;
+    }
+}
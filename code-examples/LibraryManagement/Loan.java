@@ -0,0 +1,15 @@
+package LibraryManagement;
+
+import java.time.Instant;
+
+// One open loan and when it is due back - due dates are epoch millis so millions of loans stay small
+public record Loan(String memberId, String isbn, long dueAtMillis) {
+    
+    public Instant dueAt() {
+        return Instant.ofEpochMilli(dueAtMillis);
+    }
+    
+    public boolean isOverdue(Instant now) {
+        return now.toEpochMilli() > dueAtMillis;
+    }
+}
@@ -0,0 +1,25 @@
+package LibraryManagement;
+
+// Result of one LoanRequest in a batch - batches report per item instead of throwing
+public record LoanOutcome(String memberId, String isbn, Status status, String message) {
+    
+    public enum Status {
+        COMPLETED,
+        MEMBER_NOT_FOUND,
+        BOOK_NOT_FOUND,
+        LIMIT_REACHED,
+        REJECTED       // Book unavailable, already borrowed, not borrowed by this member, ...
+    }
+    
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+    
+    static LoanOutcome completed(LoanRequest request) {
+        return new LoanOutcome(request.memberId(), request.isbn(), Status.COMPLETED, "OK");
+    }
+    
+    static LoanOutcome failed(LoanRequest request, Status status, String message) {
+        return new LoanOutcome(request.memberId(), request.isbn(), status, message);
+    }
+}
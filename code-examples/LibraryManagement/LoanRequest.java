@@ -0,0 +1,5 @@
+package LibraryManagement;
+
+// One line of a batch checkout or return - which member and which book
+public record LoanRequest(String memberId, String isbn) {
+}
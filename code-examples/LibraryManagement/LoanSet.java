@@ -0,0 +1,144 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The books one member has on loan, in borrow order, each with its due date entry on the OverdueWheel
+// Not thread-safe - guarded by the member's lock.
+// Up to INLINE_CAPACITY loans sit in two small parallel arrays, so the usual member costs a couple of
+// short arrays and a scan of a few slots. Past that the set is promoted to a LinkedHashMap, which keeps
+// members with thousands of loans at O(1) per borrow/return, and demoted again once it has shrunk back.
+final class LoanSet {
+    private static final int INLINE_CAPACITY = 8;
+    private static final int DEMOTE_AT = INLINE_CAPACITY / 2;  // Hysteresis, so one book cannot flip it back and forth
+    
+    private Book[] inline;                      // First `size` slots used; null until the first loan
+    private OverdueWheel.Entry[] inlineDue;     // Due date of inline[i]; null entries for loans without one
+    private Map<Book, OverdueWheel.Entry> hashed;  // Non-null once promoted
+    private int size;
+    
+    boolean contains(Book book) {
+        if (hashed != null) {
+            return hashed.containsKey(book);
+        }
+        return indexOf(book) >= 0;
+    }
+    
+    // Null if the book is not on loan or the loan has no due date
+    OverdueWheel.Entry dueOf(Book book) {
+        if (hashed != null) {
+            return hashed.get(book);
+        }
+        int index = indexOf(book);
+        return index < 0 ? null : inlineDue[index];
+    }
+    
+    // False if the book is already in the set
+    boolean add(Book book, OverdueWheel.Entry due) {
+        if (hashed != null) {
+            if (hashed.containsKey(book)) {
+                return false;
+            }
+            hashed.put(book, due);
+        } else {
+            if (indexOf(book) >= 0) {
+                return false;
+            }
+            if (size == INLINE_CAPACITY) {
+                promote();
+                hashed.put(book, due);
+            } else {
+                if (inline == null) {
+                    inline = new Book[2];
+                    inlineDue = new OverdueWheel.Entry[2];
+                } else if (size == inline.length) {
+                    int capacity = Math.min(inline.length * 2, INLINE_CAPACITY);
+                    inline = Arrays.copyOf(inline, capacity);
+                    inlineDue = Arrays.copyOf(inlineDue, capacity);
+                }
+                inline[size] = book;
+                inlineDue[size] = due;
+            }
+        }
+        size++;
+        return true;
+    }
+    
+    // False if the book was not in the set
+    boolean remove(Book book) {
+        if (hashed != null) {
+            if (!hashed.containsKey(book)) {
+                return false;
+            }
+            hashed.remove(book);
+            size--;
+            if (size <= DEMOTE_AT) {
+                demote();
+            }
+            return true;
+        }
+        int index = indexOf(book);
+        if (index < 0) {
+            return false;
+        }
+        int tail = size - index - 1;  // Shift the rest down to keep borrow order
+        System.arraycopy(inline, index + 1, inline, index, tail);
+        System.arraycopy(inlineDue, index + 1, inlineDue, index, tail);
+        size--;
+        inline[size] = null;
+        inlineDue[size] = null;
+        if (size == 0) {
+            inline = null;
+            inlineDue = null;
+        }
+        return true;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    // Unmodifiable copy in borrow order
+    List<Book> toList() {
+        if (hashed != null) {
+            return List.copyOf(hashed.keySet());
+        }
+        return size == 0 ? List.of() : List.of(Arrays.copyOf(inline, size));
+    }
+    
+    // Helper methods
+    private int indexOf(Book book) {
+        for (int i = 0; i < size; i++) {
+            if (inline[i].equals(book)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private void promote() {
+        hashed = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            hashed.put(inline[i], inlineDue[i]);
+        }
+        inline = null;
+        inlineDue = null;
+    }
+    
+    private void demote() {
+        List<Map.Entry<Book, OverdueWheel.Entry>> remaining = new ArrayList<>(hashed.entrySet());
+        hashed = null;
+        if (remaining.isEmpty()) {
+            return;
+        }
+        inline = new Book[INLINE_CAPACITY];
+        inlineDue = new OverdueWheel.Entry[INLINE_CAPACITY];
+        for (int i = 0; i < remaining.size(); i++) {
+            inline[i] = remaining.get(i).getKey();
+            inlineDue[i] = remaining.get(i).getValue();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package LibraryManagement;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed pool of locks shared by key hash - transactions on different keys rarely contend
+final class LockStripes {
+    private final ReentrantLock[] locks;
+    private final int mask;
+    
+    LockStripes(int minimumStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;  // Next power of two
+        this.locks = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+    
+    static LockStripes forAvailableProcessors() {
+        return new LockStripes(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+    }
+    
+    ReentrantLock lockFor(Object key) {
+        return lockFor(key.hashCode());
+    }
+    
+    ReentrantLock lockFor(int hash) {
+        return locks[indexFor(hash)];
+    }
+    
+    // Stripe number of a hash, for state kept per stripe alongside its lock
+    int indexFor(int hash) {
+        hash ^= (hash >>> 16);  // Spread high bits, same idea as HashMap
+        return hash & mask;
+    }
+    
+    int size() {
+        return locks.length;
+    }
+}
@@ -1,6 +1,5 @@
 package LibraryManagement;
 
-import java.util.ArrayList;
 import java.util.List;
 
 // Member class - Represents a library member
@@ -8,16 +7,18 @@ public class Member {
     // Encapsulated fields
     private String memberId;
     private String name;
-    private String email;
-    private List<Book> borrowedBooks;
-    private int maxBorrowLimit;
+    private volatile String email;
+    private LoanSet borrowedBooks;  // Guarded by this member's lock
+    private List<Book> borrowedSnapshot;  // Shared read-only copy, rebuilt after a borrow or return
+    private volatile int maxBorrowLimit;
+    private Library library;  // Set when registered - guarded by this member's lock
     
     // Constructor
     public Member(String memberId, String name, String email) {
         this.memberId = memberId;
         this.name = name;
         this.email = email;
-        this.borrowedBooks = new ArrayList<>();
+        this.borrowedBooks = new LoanSet();
         this.maxBorrowLimit = 5;  // Default limit
     }
     
@@ -34,35 +35,80 @@ public class Member {
         return email;
     }
     
-    public List<Book> getBorrowedBooks() {
-        return new ArrayList<>(borrowedBooks);  // Return copy for encapsulation
+    public synchronized List<Book> getBorrowedBooks() {
+        if (borrowedSnapshot == null) {
+            borrowedSnapshot = borrowedBooks.toList();  // Unmodifiable, so it can be shared
+        }
+        return borrowedSnapshot;
     }
     
     public int getMaxBorrowLimit() {
         return maxBorrowLimit;
     }
     
+    public MemberTier getTier() {
+        return MemberTier.of(maxBorrowLimit);
+    }
+    
     // Setters with validation
+    // Once registered, a change goes through the library so its journal records it
     public void setEmail(String email) {
         if (email == null || !email.contains("@")) {
             throw new IllegalArgumentException("Invalid email address");
         }
-        this.email = email;
+        update(() -> this.email = email);
     }
     
     public void setMaxBorrowLimit(int limit) {
         if (limit < 1) {
             throw new IllegalArgumentException("Borrow limit must be at least 1");
         }
-        this.maxBorrowLimit = limit;
+        update(() -> this.maxBorrowLimit = limit);
+    }
+    
+    private void update(Runnable change) {
+        Library owner;
+        synchronized (this) {
+            owner = library;
+            if (owner == null) {
+                change.run();
+                return;
+            }
+        }
+        owner.updateMember(this, change);
+    }
+    
+    // Library side - called with this member's lock held
+    Library registeredWith() {
+        return library;
+    }
+    
+    void registerWith(Library library) {
+        this.library = library;
+    }
+    
+    // Journal replay - the attributes as recorded, without the setters' validation
+    void restore(String email, int maxBorrowLimit) {
+        this.email = email;
+        this.maxBorrowLimit = maxBorrowLimit;
     }
     
     // Business logic methods
-    public boolean canBorrowMore() {
+    // Synchronized per member so the limit check and the loan happen atomically
+    public synchronized boolean canBorrowMore() {
         return borrowedBooks.size() < maxBorrowLimit;
     }
     
-    public void borrowBook(Book book) {
+    public synchronized void borrowBook(Book book) {
+        borrowBook(book, null);
+    }
+    
+    public synchronized void returnBook(Book book) {
+        endLoan(book);
+    }
+    
+    // Library side - the loan keeps its due date entry, so a return can take it off the OverdueWheel
+    synchronized void borrowBook(Book book, OverdueWheel.Entry due) {
         if (!canBorrowMore()) {
             throw new IllegalStateException("Member has reached borrow limit");
         }
@@ -70,23 +116,55 @@ public class Member {
             throw new IllegalStateException("Book already borrowed by this member");
         }
         book.checkout();
-        borrowedBooks.add(book);
+        borrowedBooks.add(book, due);
+        borrowedSnapshot = null;
     }
     
-    public void returnBook(Book book) {
+    // Returns the loan's due date entry, or null if it had none
+    synchronized OverdueWheel.Entry endLoan(Book book) {
         if (!borrowedBooks.contains(book)) {
             throw new IllegalStateException("Member did not borrow this book");
         }
+        OverdueWheel.Entry due = borrowedBooks.dueOf(book);
         book.returnBook();
         borrowedBooks.remove(book);
+        borrowedSnapshot = null;
+        return due;
+    }
+    
+    // ShardedLibrary side - the loan is recorded here, while the shard that owns the book moves the copy
+    synchronized void recordLoan(Book book) {
+        if (!canBorrowMore()) {
+            throw new IllegalStateException("Member has reached borrow limit");
+        }
+        if (borrowedBooks.contains(book)) {
+            throw new IllegalStateException("Book already borrowed by this member");
+        }
+        borrowedBooks.add(book, null);
+        borrowedSnapshot = null;
+    }
+    
+    synchronized void clearLoan(Book book) {
+        if (!borrowedBooks.remove(book)) {
+            throw new IllegalStateException("Member did not borrow this book");
+        }
+        borrowedSnapshot = null;
+    }
+    
+    synchronized OverdueWheel.Entry dueOf(Book book) {
+        return borrowedBooks.dueOf(book);
+    }
+    
+    synchronized boolean hasBorrowed(Book book) {
+        return borrowedBooks.contains(book);
     }
     
-    public int getBorrowedCount() {
+    public synchronized int getBorrowedCount() {
         return borrowedBooks.size();
     }
     
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return String.format("Member{id='%s', name='%s', email='%s', borrowed=%d/%d}",
                 memberId, name, email, borrowedBooks.size(), maxBorrowLimit);
     }
@@ -0,0 +1,15 @@
+package LibraryManagement;
+
+// Reporting tier of a member, derived from the borrow limit
+public enum MemberTier {
+    STANDARD,       // Up to the default limit of 5
+    EXTENDED,       // Up to 50 - staff, researchers
+    INSTITUTIONAL;  // Schools, other branches
+    
+    public static MemberTier of(int maxBorrowLimit) {
+        if (maxBorrowLimit <= 5) {
+            return STANDARD;
+        }
+        return maxBorrowLimit <= 50 ? EXTENDED : INSTITUTIONAL;
+    }
+}
@@ -0,0 +1,206 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hierarchical timing wheel of loan due dates - finds overdue loans without scanning the open ones
+//
+// Time advances in ticks of tickMillis. Level 0 holds the next 64 ticks one slot per tick, level 1
+// the next 64 blocks of 64 ticks, and so on; a loan sits at the lowest level whose block it shares
+// with the current tick. When a block starts, its slot one level up is cascaded down, so every loan
+// moves at most LEVELS times before it expires. A 64-bit occupancy mask per level lets an advance jump
+// straight to the next non-empty slot, so the cost is O(expired) amortized however long the wheel sat
+// idle, and schedule/cancel are O(1) list links.
+// Loans due beyond the top level wait in an overflow list that is re-placed once per top-level block.
+// Thread-safe: guarded by this wheel's monitor, taken after the ISBN lock and never while calling out.
+// Library keeps one wheel per ISBN lock stripe, so the monitor is only ever contended by the poller.
+// Slot lists are created on first use, which keeps a wheel that never sees a loan small.
+final class OverdueWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;        // 64 slots per level
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6;               // 64^6 ticks - decades even at one-second ticks
+    
+    private final long tickMillis;
+    private final Entry[][] levels = new Entry[LEVELS][SLOTS];  // Sentinels of circular lists, null until used
+    private final long[] occupied = new long[LEVELS];  // Bit per slot that may hold loans - stale after a cancel
+    private final Entry overflow = Entry.sentinel();
+    private final Entry dueNow = Entry.sentinel();     // Scheduled already past due - reported on the next advance
+    private long currentTick;
+    private long size;
+    
+    // A scheduled due date - also stored with the member's loan, so a return can cancel it in O(1)
+    static final class Entry {
+        final String memberId;
+        final String isbn;
+        final MemberTier tier;   // Tier the loan was counted under, in case the member's limit changes
+        final long dueAtMillis;
+        final long deadlineTick;
+        Entry prev;   // Null when not linked into the wheel
+        Entry next;
+        
+        private Entry(String memberId, String isbn, MemberTier tier, long dueAtMillis, long deadlineTick) {
+            this.memberId = memberId;
+            this.isbn = isbn;
+            this.tier = tier;
+            this.dueAtMillis = dueAtMillis;
+            this.deadlineTick = deadlineTick;
+        }
+        
+        private static Entry sentinel() {
+            Entry sentinel = new Entry(null, null, null, 0, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+        
+        Loan toLoan() {
+            return new Loan(memberId, isbn, dueAtMillis);
+        }
+    }
+    
+    OverdueWheel(long tickMillis, long startMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+    
+    // Loans become overdue at the first tick boundary at or after their due time, never before it
+    synchronized Entry schedule(String memberId, String isbn, MemberTier tier, long dueAtMillis) {
+        long deadlineTick = -Math.floorDiv(-dueAtMillis, tickMillis);  // Rounded up to a tick boundary
+        Entry entry = new Entry(memberId, isbn, tier, dueAtMillis, deadlineTick);
+        place(entry);
+        size++;
+        return entry;
+    }
+    
+    // No-op for an entry that has already expired or been cancelled
+    synchronized void cancel(Entry entry) {
+        if (entry.prev != null) {
+            unlink(entry);
+            size--;
+        }
+    }
+    
+    // Moves time forward to nowMillis and returns the loans that fell due on the way, oldest tick first
+    synchronized List<Loan> advanceTo(long nowMillis) {
+        List<Loan> expired = new ArrayList<>();
+        drain(dueNow, expired);
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < targetTick) {
+            long next = nextEventTick();
+            if (next > targetTick) {
+                currentTick = targetTick;  // Nothing fires or cascades before then - skip the empty ticks
+                break;
+            }
+            currentTick = next;
+            // Higher levels first: a loan cascading from level 2 may land in the level-1 slot cascaded next
+            if ((currentTick & ((1L << (LEVELS * BITS)) - 1)) == 0) {
+                cascade(overflow);
+            }
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (level * BITS)) - 1)) == 0) {
+                    int slot = (int) ((currentTick >> (level * BITS)) & MASK);
+                    occupied[level] &= ~(1L << slot);
+                    cascade(levels[level][slot]);
+                }
+            }
+            int slot = (int) (currentTick & MASK);
+            occupied[0] &= ~(1L << slot);
+            drain(levels[0][slot], expired);
+            drain(dueNow, expired);
+        }
+        return expired;
+    }
+    
+    synchronized long size() {
+        return size;
+    }
+    
+    // Helper methods
+    // The first tick after currentTick where a level-0 slot fires or a higher slot cascades. Lower
+    // levels always come first: a level-l slot only starts after the current level-(l-1) round ends.
+    private long nextEventTick() {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * BITS;
+            int current = (int) ((currentTick >> shift) & MASK);
+            long later = current == MASK ? 0 : occupied[level] & (-1L << (current + 1));
+            if (later != 0) {
+                long blockStart = (currentTick >> (shift + BITS)) << (shift + BITS);
+                return blockStart + ((long) Long.numberOfTrailingZeros(later) << shift);
+            }
+        }
+        if (overflow.next != overflow) {
+            return ((currentTick >> (LEVELS * BITS)) + 1) << (LEVELS * BITS);
+        }
+        return Long.MAX_VALUE;
+    }
+    
+    private void place(Entry entry) {
+        long deadline = entry.deadlineTick;
+        if (deadline <= currentTick) {
+            link(dueNow, entry);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = (level + 1) * BITS;
+            if ((deadline >> shift) == (currentTick >> shift)) {  // Same block one level up
+                int slot = (int) ((deadline >> (level * BITS)) & MASK);
+                if (levels[level][slot] == null) {
+                    levels[level][slot] = Entry.sentinel();
+                }
+                link(levels[level][slot], entry);
+                occupied[level] |= 1L << slot;
+                return;
+            }
+        }
+        link(overflow, entry);
+    }
+    
+    private void cascade(Entry sentinel) {
+        if (sentinel == null) {
+            return;
+        }
+        Entry entry = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        while (entry != sentinel) {
+            Entry next = entry.next;
+            place(entry);
+            entry = next;
+        }
+    }
+    
+    private void drain(Entry sentinel, List<Loan> expired) {
+        if (sentinel == null) {
+            return;
+        }
+        Entry entry = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        while (entry != sentinel) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            expired.add(entry.toLoan());
+            size--;
+            entry = next;
+        }
+    }
+    
+    private static void link(Entry sentinel, Entry entry) {
+        entry.prev = sentinel.prev;
+        entry.next = sentinel;
+        sentinel.prev.next = entry;
+        sentinel.prev = entry;
+    }
+    
+    private static void unlink(Entry entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+    }
+}
@@ -0,0 +1,11 @@
+package LibraryManagement;
+
+import java.util.List;
+
+// One page of a cursor-paged listing - pass nextCursor back in to fetch the following page
+public record Page<T>(List<T> items, String nextCursor) {
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,14 @@
+package LibraryManagement;
+
+import java.time.Duration;
+
+// What LibraryJournal.recover did - how much came from the snapshot, how much was replayed
+public record RecoveryReport(long snapshotSequence, int snapshotBooks, int snapshotMembers,
+                             long recordsReplayed, long lastSequence, Duration elapsed) {
+    
+    @Override
+    public String toString() {
+        return String.format("Recovered %d books and %d members from snapshot @%d, replayed %d records up to @%d in %d ms",
+                snapshotBooks, snapshotMembers, snapshotSequence, recordsReplayed, lastSequence, elapsed.toMillis());
+    }
+}
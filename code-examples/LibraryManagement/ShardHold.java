@@ -0,0 +1,70 @@
+package LibraryManagement;
+
+import java.util.concurrent.CompletableFuture;
+
+// A member waiting in a ShardedLibrary hold queue - the queue lives on the book's shard, and the
+// future completes with the Book once a returned copy has been lent to the member
+final class ShardHold extends CompletableFuture<Book> {
+    private final LibraryShard shard;  // The book's shard, which owns the queue
+    private final String memberId;
+    private final String isbn;         // Canonical
+    
+    ShardHold(LibraryShard shard, String memberId, String isbn) {
+        this.shard = shard;
+        this.memberId = memberId;
+        this.isbn = isbn;
+    }
+    
+    // Getters
+    String getMemberId() {
+        return memberId;
+    }
+    
+    String getIsbn() {
+        return isbn;
+    }
+    
+    // Anything that finishes the hold from outside (cancel, orTimeout, ...) asks the shard to drop it
+    // from the queue. A copy already on its way to the member is taken back by the library.
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!super.cancel(mayInterruptIfRunning)) {
+            return false;
+        }
+        shard.call(() -> shard.withdrawHold(this));
+        return true;
+    }
+    
+    @Override
+    public boolean complete(Book book) {
+        if (!super.complete(book)) {
+            return false;
+        }
+        shard.call(() -> shard.withdrawHold(this));
+        return true;
+    }
+    
+    @Override
+    public boolean completeExceptionally(Throwable failure) {
+        if (!super.completeExceptionally(failure)) {
+            return false;
+        }
+        shard.call(() -> shard.withdrawHold(this));
+        return true;
+    }
+    
+    // Dependent stages are plain futures, so cancelling them never touches the queue
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new CompletableFuture<>();
+    }
+    
+    // Library side - false when the hold was finished from outside first
+    boolean grant(Book book) {
+        return super.complete(book);
+    }
+    
+    void fail(RuntimeException failure) {
+        super.completeExceptionally(failure);
+    }
+}
@@ -0,0 +1,349 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// ShardedLibrary - Library front end over N single-threaded partitions
+//
+// Books are partitioned by ISBN and members by member ID. Each LibraryShard owns its part of the
+// catalog and membership outright and works through its mailbox one message at a time, so the hot
+// path takes no locks and desks working on different shards never touch the same memory.
+//
+// A checkout where member and book live on the same shard is one message. Otherwise it runs as
+// three steps with an undo for each:
+//   1. member's shard reserves a loan slot (limit checked, loans in flight counted)
+//   2. book's shard takes a copy off the shelf             - on failure: release the slot
+//   3. member's shard turns the reservation into the loan  - on failure: put the copy back
+// Between the steps other messages interleave; a failed step leaves no trace once its undo has run.
+//
+// Hold queues live on the book's shard. A returned copy goes to the longest-waiting hold instead of the
+// shelf, and the member's shard is then asked to take the loan; if it cannot, the hold fails and the
+// copy moves on to the next one, as in Library.
+//
+// The blocking methods mirror Library. The async variants return futures that complete on a shard
+// thread - callbacks attached to them should be short and must never block.
+public class ShardedLibrary implements AutoCloseable {
+    private final String name;
+    private final LibraryShard[] shards;
+    
+    // Constructors
+    public ShardedLibrary(String name) {
+        this(name, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ShardedLibrary(String name, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.name = name;
+        this.shards = new LibraryShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LibraryShard("library-shard-" + i);
+        }
+    }
+    
+    // Getters
+    public String getName() {
+        return name;
+    }
+    
+    public int getShardCount() {
+        return shards.length;
+    }
+    
+    public int getTotalBooks() {
+        int total = 0;
+        for (int count : gather(shard -> shard::bookCount)) {
+            total += count;
+        }
+        return total;
+    }
+    
+    public int getTotalMembers() {
+        int total = 0;
+        for (int count : gather(shard -> shard::memberCount)) {
+            total += count;
+        }
+        return total;
+    }
+    
+    // Book management methods
+    public void addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        if (book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book ISBN cannot be null");
+        }
+        LibraryShard shard = bookShard(book.getIsbn());
+        join(shard.call(() -> shard.addBook(book)));
+    }
+    
+    public void removeBook(Book book) {
+        if (book == null || book.getIsbn() == null) {
+            throw new IllegalStateException("Book not found in library");
+        }
+        String key = book.getCanonicalIsbn();
+        LibraryShard shard = bookShard(key);
+        join(shard.call(() -> {
+            if (shard.findBook(key) == null) {
+                throw new IllegalStateException("Book not found in library");
+            }
+            return shard.removeBook(key);
+        }));
+    }
+    
+    public Book findBookByIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String key = Isbn.normalize(isbn);
+        LibraryShard shard = bookShard(key);
+        return join(shard.call(() -> shard.findBook(key)));
+    }
+    
+    // Scatter-gather: every shard looks in its own author index
+    public List<Book> findBooksByAuthor(String author) {
+        if (author == null) {
+            return new ArrayList<>();
+        }
+        String key = Library.authorKey(author);
+        List<Book> books = new ArrayList<>();
+        for (List<Book> partial : gather(shard -> () -> shard.findBooksByAuthor(key))) {
+            books.addAll(partial);
+        }
+        return books;
+    }
+    
+    // Member management methods
+    public void registerMember(Member member) {
+        if (member == null) {
+            throw new IllegalArgumentException("Member cannot be null");
+        }
+        if (member.getMemberId() == null) {
+            throw new IllegalArgumentException("Member ID cannot be null");
+        }
+        LibraryShard shard = memberShard(member.getMemberId());
+        join(shard.call(() -> shard.registerMember(member)));
+    }
+    
+    public Member findMemberById(String memberId) {
+        if (memberId == null) {
+            return null;
+        }
+        LibraryShard shard = memberShard(memberId);
+        return join(shard.call(() -> shard.findMember(memberId)));
+    }
+    
+    // Transaction methods
+    public void checkoutBook(String memberId, String isbn) {
+        join(checkoutBookAsync(memberId, isbn));
+    }
+    
+    public void returnBook(String memberId, String isbn) {
+        join(returnBookAsync(memberId, isbn));
+    }
+    
+    public CompletableFuture<Void> checkoutBookAsync(String memberId, String isbn) {
+        if (memberId == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Member not found"));
+        }
+        if (isbn == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Book not found"));
+        }
+        String key = Isbn.normalize(isbn);
+        LibraryShard members = memberShard(memberId);
+        LibraryShard books = bookShard(key);
+        if (members == books) {
+            return members.call(() -> {
+                Member member = members.reserveLoan(memberId);
+                Book book;
+                try {
+                    book = members.takeCopy(key);
+                } catch (RuntimeException e) {
+                    members.releaseLoan(member);
+                    throw e;
+                }
+                try {
+                    return members.confirmLoan(member, book);
+                } catch (RuntimeException e) {
+                    handOff(members, book, members.putBack(book));
+                    throw e;
+                }
+            });
+        }
+        return members.call(() -> members.reserveLoan(memberId))
+                .thenCompose(member -> undoOnFailure(books.call(() -> books.takeCopy(key)),
+                        () -> members.call(() -> members.releaseLoan(member)))
+                        .thenCompose(book -> undoOnFailure(members.call(() -> members.confirmLoan(member, book)),
+                                () -> putBack(books, book))));
+    }
+    
+    // The member's shard ends the loan first, so the copy is back on the shelf only once nobody holds it
+    public CompletableFuture<Void> returnBookAsync(String memberId, String isbn) {
+        if (memberId == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Member not found"));
+        }
+        if (isbn == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Book not found"));
+        }
+        String key = Isbn.normalize(isbn);
+        LibraryShard members = memberShard(memberId);
+        LibraryShard books = bookShard(key);
+        if (members == books) {
+            return members.call(() -> {
+                Book book = members.endLoan(memberId, members.requireBook(key));
+                handOff(members, book, members.putBack(book));
+                return null;
+            });
+        }
+        return books.call(() -> books.requireBook(key))
+                .thenCompose(book -> members.call(() -> members.endLoan(memberId, book)))
+                .thenCompose(book -> putBack(books, book));
+    }
+    
+    // Hold methods
+    // Checks the book out right away when a copy is free and nobody is waiting; otherwise joins the
+    // ISBN's FIFO queue on the book's shard, and the future completes once a returned copy is lent
+    public CompletableFuture<Book> placeHold(String memberId, String isbn) {
+        if (memberId == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        if (isbn == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        String key = Isbn.normalize(isbn);
+        LibraryShard members = memberShard(memberId);
+        LibraryShard books = bookShard(key);
+        Book book = join(books.call(() -> books.requireBook(key)));
+        join(members.call(() -> members.checkCanBorrow(memberId, book)));  // Fail now rather than after a long wait
+        ShardHold hold = new ShardHold(books, memberId, book.getCanonicalIsbn());
+        if (join(books.call(() -> books.takeCopyOrQueue(key, hold))) == null) {
+            return hold;
+        }
+        join(undoOnFailure(members.call(() -> members.lend(memberId, book)), () -> putBack(books, book)));
+        return CompletableFuture.completedFuture(book);
+    }
+    
+    public boolean cancelHold(String memberId, String isbn) {
+        if (memberId == null || isbn == null) {
+            return false;
+        }
+        String key = Isbn.normalize(isbn);
+        LibraryShard books = bookShard(key);
+        ShardHold hold = join(books.call(() -> books.findHold(key, memberId)));
+        return hold != null && hold.cancel(false);
+    }
+    
+    public int getHoldCount(String isbn) {
+        if (isbn == null) {
+            return 0;
+        }
+        String key = Isbn.normalize(isbn);
+        LibraryShard books = bookShard(key);
+        return join(books.call(() -> books.holdCount(key)));
+    }
+    
+    // Lets queued messages finish, then stops the shard threads
+    @Override
+    public void close() {
+        try {
+            for (LibraryShard shard : shards) {
+                shard.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ShardedLibrary{name='%s', shards=%d, books=%d, members=%d}",
+                name, shards.length, getTotalBooks(), getTotalMembers());
+    }
+    
+    // Helper methods
+    // Same hash as Library's ISBN locks, so every spelling of an ISBN lands on the same shard
+    private LibraryShard bookShard(String isbn) {
+        return shardFor(Isbn.hash(isbn));
+    }
+    
+    private LibraryShard memberShard(String memberId) {
+        return shardFor(memberId.hashCode());
+    }
+    
+    private LibraryShard shardFor(int hash) {
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+    
+    private interface ShardQuery<T> {
+        Supplier<T> on(LibraryShard shard);
+    }
+    
+    // Sends the query to every shard at once and waits for all the answers
+    private <T> List<T> gather(ShardQuery<T> query) {
+        List<CompletableFuture<T>> answers = new ArrayList<>(shards.length);
+        for (LibraryShard shard : shards) {
+            answers.add(shard.call(query.on(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        for (CompletableFuture<T> answer : answers) {
+            results.add(join(answer));
+        }
+        return results;
+    }
+    
+    // Runs the undo when the step failed, then fails with the step's own exception
+    private static <T> CompletableFuture<T> undoOnFailure(CompletableFuture<T> step,
+                                                          Supplier<CompletableFuture<Void>> undo) {
+        return step.exceptionallyCompose(failure -> undo.get()
+                .thenCompose(undone -> CompletableFuture.failedFuture(unwrap(failure))));
+    }
+    
+    // A copy coming back - to the next hold if anyone waits, otherwise to the shelf
+    private CompletableFuture<Void> putBack(LibraryShard books, Book book) {
+        return books.call(() -> {
+            handOff(books, book, books.putBack(book));
+            return null;
+        });
+    }
+    
+    // Lends the copy the book's shard set aside to the hold's member. Does not wait: a member who cannot
+    // take it fails the hold, one who cancelled meanwhile gives the loan straight back, and either way
+    // the copy goes on to the next hold.
+    private void handOff(LibraryShard books, Book book, ShardHold hold) {
+        if (hold == null) {
+            return;
+        }
+        String memberId = hold.getMemberId();
+        LibraryShard members = memberShard(memberId);
+        members.call(() -> members.lend(memberId, book)).whenComplete((lent, failure) -> {
+            if (failure != null) {
+                hold.fail(unwrap(failure) instanceof RuntimeException e ? e : new IllegalStateException(failure));
+                putBack(books, book);
+            } else if (!hold.grant(book)) {
+                members.call(() -> members.endLoan(memberId, book)).thenRun(() -> putBack(books, book));
+            }
+        });
+    }
+    
+    // Rethrows the library's own exceptions as they are, like the single-instance Library does
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+    
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+}
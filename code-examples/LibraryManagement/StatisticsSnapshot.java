@@ -0,0 +1,21 @@
+package LibraryManagement;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.SortedMap;
+
+// Every LibraryStatistics aggregate as of one moment between changes, so it balances even while writers run
+// Authors are keyed case-insensitively (lower case), decades by their first year, e.g. 2010.
+public record StatisticsSnapshot(Instant takenAt, CatalogCounts catalog,
+                                 Map<String, CatalogCounts> byAuthor,
+                                 SortedMap<Integer, CatalogCounts> byDecade,
+                                 Map<MemberTier, Long> loansByTier) {
+    
+    public long totalLoans() {
+        long total = 0;
+        for (long loans : loansByTier.values()) {
+            total += loans;
+        }
+        return total;
+    }
+}
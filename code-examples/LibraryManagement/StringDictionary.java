@@ -0,0 +1,38 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Dictionary encoding - each distinct string is stored once and referred to by an int code
+// Callers serialize encode; codeOf may run alongside it, which ColumnarCatalog's author scans rely on
+final class StringDictionary {
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final List<String> values = new ArrayList<>();
+    
+    // Returns the existing code for value, or assigns the next one
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+    
+    // Returns -1 when the value has never been encoded
+    int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+    
+    String decode(int code) {
+        return values.get(code);
+    }
+    
+    int size() {
+        return values.size();
+    }
+}
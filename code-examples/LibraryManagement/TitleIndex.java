@@ -0,0 +1,196 @@
+package LibraryManagement;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+// Inverted index over book titles - token -> books whose title contains that token, sorted by title
+// Tokens are also kept sorted, so the prefix "jav" is a range scan over the tokens starting with "jav".
+//
+// Membership lives in a ConcurrentHashMap, whose compute runs atomically per token: a book added to a
+// token's postings while another thread empties and drops them cannot be lost. The sorted token map is
+// only changed inside those computes, so it lists a token exactly while the token has books.
+//
+// Because every posting set is in title order, a search keeps only the first limit books in a bounded
+// heap and reads each expansion of a prefix just while its books still beat the worst one kept - "t"
+// or "the" costs one look per expansion plus limit heap steps, not a pass over every matching book.
+final class TitleIndex {
+    private static final Comparator<Book> BY_TITLE = TitleIndex::compareTitles;
+    private static final Comparator<Book> WORST_FIRST = BY_TITLE.reversed();
+    
+    private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Posting> tokens = new ConcurrentSkipListMap<>();  // Same postings, sorted
+    
+    // One token's books; size is only changed inside the token's compute
+    private static final class Posting {
+        final NavigableSet<Book> books = new ConcurrentSkipListSet<>(BY_TITLE);
+        volatile int size;
+    }
+    
+    void add(Book book) {
+        for (String token : tokenize(book.getTitle())) {
+            postings.compute(token, (key, posting) -> {
+                Posting result = posting;
+                if (result == null) {
+                    result = new Posting();
+                    tokens.put(key, result);
+                }
+                if (result.books.add(book)) {
+                    result.size++;
+                }
+                return result;
+            });
+        }
+    }
+    
+    void remove(Book book) {
+        for (String token : tokenize(book.getTitle())) {
+            postings.computeIfPresent(token, (key, posting) -> {
+                if (posting.books.remove(book)) {
+                    posting.size--;
+                }
+                if (posting.size > 0) {
+                    return posting;
+                }
+                tokens.remove(key);
+                return null;
+            });
+        }
+    }
+    
+    // Every query term is matched as a prefix; books matching more terms rank first, ties in title order
+    List<Book> search(String query, int limit) {
+        Set<String> terms = tokenize(query);
+        List<Book> ranked = new ArrayList<>();
+        if (terms.isEmpty() || limit < 1) {
+            return ranked;
+        }
+        
+        Map<String, List<Posting>> expanded = new HashMap<>();
+        for (String term : terms) {
+            expanded.put(term, expand(term));
+        }
+        List<String> rarestFirst = new ArrayList<>(terms);
+        rarestFirst.sort(Comparator.comparingLong(term -> totalSize(expanded.get(term))));
+        
+        // Level by level: books matching all n terms, then n-1, ... A book that misses only `missing`
+        // terms must appear under one of the (missing + 1) rarest terms, so each level only reads
+        // one more term's postings, and only as far as it takes to fill the result.
+        int termCount = terms.size();
+        for (int missing = 0; missing < termCount && ranked.size() < limit; missing++) {
+            List<Posting> candidates = new ArrayList<>();
+            for (String term : rarestFirst.subList(0, missing + 1)) {
+                candidates.addAll(expanded.get(term));
+            }
+            int score = termCount - missing;
+            ranked.addAll(firstInTitleOrder(candidates, limit - ranked.size(),
+                    book -> termCount == 1 || countMatchedTerms(book, terms) == score));
+        }
+        return ranked;
+    }
+    
+    // The first `wanted` accepted books across the postings, in title order. The heap holds the best
+    // books so far with the worst on top; a posting is read only while its next book beats that one.
+    private static List<Book> firstInTitleOrder(List<Posting> sources, int wanted, Predicate<Book> accept) {
+        PriorityQueue<Book> kept = new PriorityQueue<>(Math.min(wanted, 256) + 1, WORST_FIRST);
+        Set<Book> keptSet = Collections.newSetFromMap(new IdentityHashMap<>());  // Listed under several tokens
+        for (Posting posting : sources) {
+            for (Book book : posting.books) {
+                if (kept.size() == wanted && BY_TITLE.compare(book, kept.peek()) >= 0) {
+                    break;  // The rest of this posting sorts later still
+                }
+                if (keptSet.contains(book) || !accept.test(book)) {
+                    continue;
+                }
+                kept.add(book);
+                keptSet.add(book);
+                if (kept.size() > wanted) {
+                    keptSet.remove(kept.poll());
+                }
+            }
+        }
+        List<Book> result = new ArrayList<>(kept);
+        result.sort(BY_TITLE);
+        return result;
+    }
+    
+    // Checked against the book's own title, so the cost does not depend on how many tokens a term expands to
+    private static int countMatchedTerms(Book book, Set<String> terms) {
+        Set<String> titleTokens = tokenize(book.getTitle());
+        int matched = 0;
+        for (String term : terms) {
+            for (String token : titleTokens) {
+                if (token.startsWith(term)) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+    
+    private static long totalSize(List<Posting> expansion) {
+        long size = 0;
+        for (Posting posting : expansion) {
+            size += posting.size;
+        }
+        return size;
+    }
+    
+    // Title, untitled books last, then ISBN - written out because every posting insert runs it log n times
+    private static int compareTitles(Book a, Book b) {
+        String titleA = a.getTitle();
+        String titleB = b.getTitle();
+        if (titleA != titleB) {
+            if (titleA == null) {
+                return 1;
+            }
+            if (titleB == null) {
+                return -1;
+            }
+            int order = titleA.compareTo(titleB);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return a.getIsbn().compareTo(b.getIsbn());
+    }
+    
+    // Postings of every token starting with prefix
+    private List<Posting> expand(String prefix) {
+        return new ArrayList<>(tokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+    
+    // Lower-cased letters/digits runs, e.g. "Head First Java, 2nd Ed." -> head, first, java, 2nd, ed
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
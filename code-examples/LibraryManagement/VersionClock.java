@@ -0,0 +1,115 @@
+package LibraryManagement;
+
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Commit clock behind LibraryView - each change to a book's copies gets the next version number
+//
+// A book keeps its recent states as a chain of Versions, newest first. A writer links its new state in
+// as PENDING, then takes a number from the clock, so a reader that already holds a later number and
+// reaches the pending state knows to wait the few instructions until it is numbered. A reader at version
+// r uses the newest state numbered <= r; a book with none is not in the catalog at r.
+//
+// Old states are cut off by the writer of the next change to the same book, keeping the newest state
+// that the oldest pinned view can still ask for. Removed books are retired here until no view is old
+// enough to see them, so a view keeps listing them after they left the library's indexes.
+final class VersionClock {
+    static final long ABSENT = -1;  // Copies of a state where the book is not in the catalog
+    private static final long PENDING = Long.MAX_VALUE;
+    private static final long NO_PINS = Long.MAX_VALUE;
+    
+    // One state of a book's packed copy counters; see Book for the packing
+    static final class Version {
+        final long copies;
+        volatile long number = PENDING;
+        volatile Version older;  // Cut by the writer once no view can reach past this state
+        
+        Version(long copies, Version older) {
+            this.copies = copies;
+            this.older = older;
+        }
+    }
+    
+    private record Retired(Book book, long removedAt) {
+    }
+    
+    private final AtomicLong clock = new AtomicLong();
+    private final TreeMap<Long, Integer> pins = new TreeMap<>();  // Pinned version -> open views, guarded by this
+    private volatile long oldestPin = NO_PINS;
+    private final Queue<Retired> retired = new ConcurrentLinkedQueue<>();
+    
+    long current() {
+        return clock.get();
+    }
+    
+    // Writer side - called under the book's lock with the state already linked in as the chain's head
+    long commit(Version head) {
+        long number = clock.incrementAndGet();
+        head.number = number;
+        // Read the pins only after taking the number: a view not registered by now reads a later clock
+        long horizon = Math.min(oldestPin, number);
+        Version keep = head;
+        while (keep != null && keep.number > horizon) {
+            keep = keep.older;
+        }
+        if (keep != null) {
+            keep.older = null;
+        }
+        return number;
+    }
+    
+    // Called once the book's absent state is committed, before it leaves the indexes
+    void retire(Book book, long removedAt) {
+        retired.add(new Retired(book, removedAt));
+        purgeRetired();
+    }
+    
+    Iterable<Book> retiredBooks() {
+        return () -> retired.stream().map(Retired::book).iterator();
+    }
+    
+    // Reader side - the caller reads its version from the clock after this returns, and unpins what it got here
+    synchronized long pin() {
+        long pinned = clock.get();
+        pins.merge(pinned, 1, Integer::sum);
+        oldestPin = pins.firstKey();
+        return pinned;
+    }
+    
+    void unpin(long pinned) {
+        synchronized (this) {
+            pins.computeIfPresent(pinned, (version, views) -> views == 1 ? null : views - 1);
+            oldestPin = pins.isEmpty() ? NO_PINS : pins.firstKey();
+        }
+        purgeRetired();
+    }
+    
+    // Newest state numbered <= version, as packed copies, or ABSENT
+    static long copiesAt(Version newest, long version) {
+        for (Version state = newest; state != null; state = state.older) {
+            long number = state.number;
+            for (int spins = 0; number == PENDING; spins++) {  // Its writer is between two instructions
+                if (spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+                number = state.number;
+            }
+            if (number <= version) {
+                return state.copies;
+            }
+        }
+        return ABSENT;
+    }
+    
+    // Helper methods
+    // The clock is read before the pins, for the same reason as in commit
+    private void purgeRetired() {
+        long now = clock.get();
+        long horizon = Math.min(oldestPin, now);
+        retired.removeIf(entry -> entry.removedAt() <= horizon);
+    }
+}
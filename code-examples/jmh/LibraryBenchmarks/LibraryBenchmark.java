@@ -0,0 +1,224 @@
+package LibraryBenchmarks;
+
+import LibraryManagement.Book;
+import LibraryManagement.CatalogStorage;
+import LibraryManagement.Library;
+import LibraryManagement.LibraryView;
+import LibraryManagement.Member;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// LibraryBenchmark - JMH microbenchmarks for the LibraryManagement hot paths
+//
+// Built by the jmh source set in build.gradle, run from code-examples:
+//   gradle jmh                       - the @Param sizes below, results in build/results/jmh/results.csv
+//   gradle jmh -Pjmh.params=large    - 10M books and 1M members, with -Xmx16g
+// or with any sizes from the jar (a catalog takes about 1 KB of heap per book):
+//   gradle jmhJar
+//   java -jar build/libs/code-examples-jmh.jar -p books=1000,100000,10000000 -p members=100,1000000 \
+//        -jvmArgsAppend -Xmx16g -rf csv -rff results.csv "checkoutBook|findBooksByAuthor"
+//
+// The catalog size stays constant: the batch benchmarks add or borrow BATCH books per invocation and undo
+// that in an untimed invocation-level teardown. A batch keeps the per-invocation setup cost, which JMH
+// does not time but still pays for, small next to the work measured. The shared catalog is mutated by the
+// batch states, so run with the default single benchmark thread.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LibraryBenchmark {
+    static final int BATCH = 1000;
+    private static final int BORROW_LIMIT = 1_000_000;  // Limits are not what we measure here
+    
+    // Shared catalog: ISBN-13s with valid check digits, 100 books per author, members with huge limits
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({"1000", "100000"})
+        int books;
+        
+        @Param({"100"})
+        int members;
+        
+        @Param({"INDEXED", "COLUMNAR"})
+        CatalogStorage storage;
+        
+        Library library;
+        String[] isbns;
+        String[] memberIds;
+        String[] authors;
+        long nextIsbn;          // Next unused ISBN number for books added by the addBook benchmark
+        int nextLoan;           // Rotates which books/members the loan benchmarks use
+        
+        @Setup(Level.Trial)
+        public void build() {
+            if (books < BATCH) {
+                throw new IllegalArgumentException("books must be at least " + BATCH + " so a batch never repeats a loan");
+            }
+            library = new Library("Benchmark Library", storage);
+            authors = new String[Math.max(1, books / 100)];
+            for (int i = 0; i < authors.length; i++) {
+                authors[i] = "Author " + i;
+            }
+            isbns = new String[books];
+            for (int i = 0; i < books; i++) {
+                isbns[i] = isbn13(i);
+                library.addBook(new Book(isbns[i], "Title " + i, authors[i % authors.length], 1950 + i % 75));
+            }
+            nextIsbn = books;
+            memberIds = new String[members];
+            for (int i = 0; i < members; i++) {
+                memberIds[i] = "M" + i;
+                Member member = new Member(memberIds[i], "Member " + i, "member" + i + "@example.com");
+                member.setMaxBorrowLimit(BORROW_LIMIT);
+                library.registerMember(member);
+            }
+        }
+        
+        // Claims the next BATCH loan slots and returns the first
+        int nextLoans() {
+            int first = nextLoan;
+            nextLoan = (first + BATCH) % books;
+            return first;
+        }
+        
+        void checkout(int loan) {
+            library.checkoutBook(memberIds[loan % members], isbns[loan % books]);
+        }
+        
+        void giveBack(int loan) {
+            library.returnBook(memberIds[loan % members], isbns[loan % books]);
+        }
+        
+        // "978" + 9-digit number + ISBN-13 check digit
+        static String isbn13(long number) {
+            String digits = String.format("978%09d", number);
+            int sum = 0;
+            for (int i = 0; i < 12; i++) {
+                sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            return digits + (10 - sum % 10) % 10;
+        }
+    }
+    
+    // Books not yet in the catalog; removed again after the invocation
+    @State(Scope.Thread)
+    public static class NewBooks {
+        final Book[] batch = new Book[BATCH];
+        
+        @Setup(Level.Invocation)
+        public void prepare(Catalog catalog) {
+            for (int i = 0; i < batch.length; i++) {
+                long number = catalog.nextIsbn++;
+                batch[i] = new Book(Catalog.isbn13(number), "Title " + number,
+                        catalog.authors[(int) (number % catalog.authors.length)], 2000);
+            }
+        }
+        
+        @TearDown(Level.Invocation)
+        public void remove(Catalog catalog) {
+            for (Book book : batch) {
+                catalog.library.removeBook(book);  // Keep the catalog at its nominal size
+            }
+        }
+    }
+    
+    // Loans the checkoutBook benchmark makes; returned after the invocation
+    @State(Scope.Thread)
+    public static class FreeLoans {
+        int first;
+        
+        @Setup(Level.Invocation)
+        public void pick(Catalog catalog) {
+            first = catalog.nextLoans();
+        }
+        
+        @TearDown(Level.Invocation)
+        public void giveBack(Catalog catalog) {
+            for (int i = 0; i < BATCH; i++) {
+                catalog.giveBack(first + i);
+            }
+        }
+    }
+    
+    // Loans already made before the returnBook benchmark gives them back
+    @State(Scope.Thread)
+    public static class OpenLoans {
+        int first;
+        
+        @Setup(Level.Invocation)
+        public void checkout(Catalog catalog) {
+            first = catalog.nextLoans();
+            for (int i = 0; i < BATCH; i++) {
+                catalog.checkout(first + i);
+            }
+        }
+    }
+    
+    // Benchmarks
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addBook(Catalog catalog, NewBooks newBooks) {
+        for (Book book : newBooks.batch) {
+            catalog.library.addBook(book);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void checkoutBook(Catalog catalog, FreeLoans loans) {
+        for (int i = 0; i < BATCH; i++) {
+            catalog.checkout(loans.first + i);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void returnBook(Catalog catalog, OpenLoans loans) {
+        for (int i = 0; i < BATCH; i++) {
+            catalog.giveBack(loans.first + i);
+        }
+    }
+    
+    @Benchmark
+    public int findBooksByAuthor(Catalog catalog) {
+        String author = catalog.authors[ThreadLocalRandom.current().nextInt(catalog.authors.length)];
+        return catalog.library.findBooksByAuthor(author).size();
+    }
+    
+    // Copies the whole available set - one call is already a lot of work
+    @Benchmark
+    public void findAvailableBooks(Catalog catalog, Blackhole blackhole) {
+        blackhole.consume(catalog.library.findAvailableBooks());
+    }
+    
+    // Same answer as of one version - opens a view, scans the catalog, closes the view
+    @Benchmark
+    public void viewFindAvailableBooks(Catalog catalog, Blackhole blackhole) {
+        try (LibraryView view = catalog.library.openView()) {
+            blackhole.consume(view.findAvailableBooks());
+        }
+    }
+    
+    @Benchmark
+    public int getAvailableBooksCount(Catalog catalog) {
+        return catalog.library.getAvailableBooksCount();
+    }
+}